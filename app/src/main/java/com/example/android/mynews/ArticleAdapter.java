@@ -1,64 +1,395 @@
 package com.example.android.mynews;
 
 import android.content.Context;
-import android.support.annotation.NonNull;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
-public class ArticleAdapter extends ArrayAdapter<Article> {
+/**
+ * Binds {@link Article} rows for the feed. New lists are diffed against the shown one
+ * on a background thread, keyed by article URL, so a refresh only rebinds the rows
+ * that actually changed and the scroll position is kept. The rows are kept in an
+ * {@link ArticleFile}, so only a window of articles around the visible ones is on the heap;
+ * they are written to it on the same background thread, rows added as they arrive too.
+ * Title and author text is laid out in the background as articles arrive, so binding a
+ * row does not measure text.
+ */
+public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHolder> {
 
     // LogTag Used For Troubleshooting
-    public static String LOG_TAG = ArrayAdapter.class.getSimpleName();
+    public static String LOG_TAG = ArticleAdapter.class.getSimpleName();
 
-    ArticleAdapter(Context context, List<Article> articles) {
-        super(context, 0, articles);
+    // Changes are worked out one at a time off the UI thread, in the order they were made
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // Lines of title and author shown in a row
+    private static final int TITLE_MAX_LINES = 2;
+    private static final int AUTHOR_MAX_LINES = 1;
+    // Rows of a new list laid out ahead; a couple of pages, the rest as they are bound
+    private static final int MAX_PRECOMPUTED_ROWS = 60;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final OnArticleClickListener mClickListener;
+    private final ThumbnailLoader mThumbnailLoader;
+    private final ArticleFile mArticleFile;
+    private final TextLayoutCache mTitleLayouts;
+    private final TextLayoutCache mAuthorLayouts;
+    private final String mNoAuthorLabel;
+    // The list currently shown, never modified in place
+    private MappedArticleList mArticles;
+    // What a refresh needs of mArticles
+    private ShownArticles mShown = ShownArticles.NONE;
+    // The list and its summary as they will be once every change made so far is worked
+    // out; only touched on DIFF_EXECUTOR, where each change builds on them
+    private MappedArticleList mQueued;
+    private ShownArticles mQueuedShown = ShownArticles.NONE;
+    // Bumped on clear so changes made before it are dropped
+    private int mGeneration;
+    // Off on slow links, where rows show the placeholder instead
+    private boolean mLoadThumbnails = true;
+
+    /**
+     * Receives the article of the row that was tapped.
+     */
+    public interface OnArticleClickListener {
+        void onArticleClick(Article article);
+    }
+
+    ArticleAdapter(Context context, OnArticleClickListener clickListener,
+                   ThumbnailLoader thumbnailLoader, ArticleFile articleFile) {
+        mClickListener = clickListener;
+        mThumbnailLoader = thumbnailLoader;
+        mArticleFile = articleFile;
+        mArticles = MappedArticleList.empty(articleFile);
+        mQueued = mArticles;
+
+        // The text sits beside the thumbnail, inside the row padding
+        Resources resources = context.getResources();
+        int margin = resources.getDimensionPixelSize(R.dimen.thumbnail_size)
+                + 2 * resources.getDimensionPixelSize(R.dimen.row_padding);
+        mTitleLayouts = TextLayoutCache.forStyle(context, R.dimen.title_text_size,
+                R.color.primaryText, TITLE_MAX_LINES, margin);
+        mAuthorLayouts = TextLayoutCache.forStyle(context, R.dimen.author_text_size,
+                R.color.primaryText, AUTHOR_MAX_LINES, margin);
+        mNoAuthorLabel = context.getString(R.string.no_author);
     }
 
-    @NonNull
     @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.article_list_items, parent, false);
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View listItemView = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.article_list_items, parent, false);
+        return new ViewHolder(listItemView);
+    }
 
-            //Find all the views in put into ViewHolder
-            ViewHolder viewHolder = new ViewHolder();
-            viewHolder.title = (TextView) listItemView.findViewById(R.id.article_name);
-            viewHolder.author = (TextView) listItemView.findViewById(R.id.author_name);
-            viewHolder.section = (TextView) listItemView.findViewById(R.id.section);
-            viewHolder.date = (TextView) listItemView.findViewById(R.id.date);
-            viewHolder.image = (ImageView) listItemView.findViewById(R.id.image);
-            listItemView.setTag(viewHolder);
-        }
-        ViewHolder holder = (ViewHolder) listItemView.getTag();
-        Article currentArticle = getItem(position);
-
-        // If the currentArticle is not null,
-        // set the text to all data specificed here
-        assert currentArticle != null;
-        holder.title.setText(currentArticle.getTitle());
-        holder.author.setText(currentArticle.getAuthor());
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        long bindTimer = Metrics.start();
+        bind(holder, mArticles.get(position));
+        Metrics.BIND.stop(bindTimer);
+    }
+
+    private void bind(ViewHolder holder, Article currentArticle) {
+        // Set the text to all data specified here
+        holder.title.setText(currentArticle.getTitle(), mTitleLayouts);
+        holder.author.setText(authorLabel(currentArticle), mAuthorLayouts);
         holder.section.setText(currentArticle.getSection());
-        holder.date.setText(currentArticle.getDate());
-        holder.image.setImageResource(R.drawable.guardian_news_icon);
+        long dateTimer = Metrics.start();
+        CharSequence date = DateLabels.formatForDisplay(
+                currentArticle.getTimeInMillis(), System.currentTimeMillis());
+        Metrics.DATE_FORMAT.stop(dateTimer);
+        holder.date.setText(date);
+        mThumbnailLoader.load(holder.image,
+                mLoadThumbnails ? currentArticle.getThumbnailUrl() : null,
+                R.drawable.guardian_news_icon);
+    }
+
+    private String authorLabel(Article article) {
+        String authorLabel = article.getAuthorLabel();
+        return authorLabel == null ? mNoAuthorLabel : authorLabel;
+    }
+
+    // Lays out the text of the first rows in the background, ahead of their binding
+    private void precomputeLayouts(List<Article> articles) {
+        int count = Math.min(articles.size(), MAX_PRECOMPUTED_ROWS);
+        List<String> titles = new ArrayList<>(count);
+        List<String> authorLabels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Article article = articles.get(i);
+            titles.add(article.getTitle());
+            authorLabels.add(authorLabel(article));
+        }
+        mTitleLayouts.precompute(titles);
+        mAuthorLayouts.precompute(authorLabels);
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        // The row is about to show another article, so stop loading this one's thumbnail
+        mThumbnailLoader.cancel(holder.image);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mArticles.size();
+    }
+
+    /**
+     * Sets whether rows bound from now on download their thumbnails.
+     */
+    void setLoadThumbnails(boolean loadThumbnails) {
+        mLoadThumbnails = loadThumbnails;
+    }
+
+    Article getItem(int position) {
+        return mArticles.get(position);
+    }
+
+    /**
+     * Returns the newest time, URLs and first page of the rows shown, for a refresh.
+     */
+    ShownArticles getShown() {
+        return mShown;
+    }
+
+    /**
+     * Removes every row right away, and with them every article in the file.
+     */
+    void clear() {
+        mGeneration++;
+        // A change still being worked out on the old rows fails and is dropped
+        mArticleFile.clear();
+        final MappedArticleList empty = MappedArticleList.empty(mArticleFile);
+        mArticles = empty;
+        mShown = ShownArticles.NONE;
+        notifyDataSetChanged();
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                mQueued = empty;
+                mQueuedShown = ShownArticles.NONE;
+            }
+        });
+    }
+
+    /**
+     * Adds articles to the end of the list without diffing, for rows that are still
+     * arriving. They are written to the file in the background and shown once they are in.
+     */
+    void append(final List<Article> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final int generation = mGeneration;
+        precomputeLayouts(batch);
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int start = mQueued.size();
+                MappedArticleList articles;
+                try {
+                    articles = mQueued.plus(batch);
+                } catch (IllegalStateException e) {
+                    // The rows were cleared meanwhile, so this batch is stale anyway
+                    return;
+                }
+                show(generation, articles, mQueuedShown.plus(batch), new Runnable() {
+                    @Override
+                    public void run() {
+                        notifyItemRangeInserted(start, batch.size());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Adds articles to the top of the list without diffing, leaving the other rows as
+     * they are. They are written to the file in the background and shown once they are in.
+     */
+    void prepend(final List<Article> newer) {
+        if (newer.isEmpty()) {
+            return;
+        }
+        final int generation = mGeneration;
+        precomputeLayouts(newer);
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                MappedArticleList articles;
+                try {
+                    articles = mQueued.plusFirst(newer);
+                } catch (IllegalStateException e) {
+                    // The rows were cleared meanwhile, so these are stale anyway
+                    return;
+                }
+                show(generation, articles, mQueuedShown.plusFirst(newer), new Runnable() {
+                    @Override
+                    public void run() {
+                        notifyItemRangeInserted(0, newer.size());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces the shown list, which must not be changed afterwards. The new rows are
+     * written to the file and the difference is worked out on a background thread, and
+     * only the inserted, moved, removed or changed rows are updated.
+     */
+    void submitList(final List<Article> newList) {
+        final int generation = mGeneration;
+        precomputeLayouts(newList);
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // What the rows will be by the time this change is shown
+                MappedArticleList oldList = mQueued;
+                MappedArticleList snapshot;
+                ShownArticles shown;
+                final DiffUtil.DiffResult result;
+                try {
+                    // Rows the file already holds unchanged keep their records
+                    snapshot = MappedArticleList.of(mArticleFile, newList);
+                    // With nothing to compare, the whole list is swapped at once
+                    result = oldList.isEmpty() || snapshot.isEmpty() ? null
+                            : DiffUtil.calculateDiff(new ArticleDiff(oldList, snapshot));
+                    shown = ShownArticles.of(snapshot);
+                } catch (IllegalStateException e) {
+                    // The rows were cleared meanwhile, so this list is stale anyway
+                    return;
+                }
+                show(generation, snapshot, shown, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result == null) {
+                            notifyDataSetChanged();
+                        } else {
+                            result.dispatchUpdatesTo(ArticleAdapter.this);
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        return listItemView;
+    // Called on DIFF_EXECUTOR with a change worked out: the next change builds on it, and
+    // the UI thread swaps it in and notifies the rows in one go, unless they were cleared
+    // after the change was made
+    private void show(final int generation, final MappedArticleList articles,
+                      final ShownArticles shown, final Runnable notifyChange) {
+        mQueued = articles;
+        mQueuedShown = shown;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mGeneration) {
+                    mArticles = articles;
+                    mShown = shown;
+                    notifyChange.run();
+                }
+            }
+        });
+    }
+
+    // Compares two lists by article URL, then by the fields shown in a row. Rows that
+    // are the same record need no reading, and the rest are peeked at, so the diff
+    // neither decodes a row twice for its URL nor pushes the visible rows out of the window
+    private static final class ArticleDiff extends DiffUtil.Callback {
+        private final MappedArticleList mOld;
+        private final MappedArticleList mNew;
+        private final String[] mOldUrls;
+        private final String[] mNewUrls;
+
+        ArticleDiff(MappedArticleList oldList, MappedArticleList newList) {
+            mOld = oldList;
+            mNew = newList;
+            mOldUrls = new String[oldList.size()];
+            mNewUrls = new String[newList.size()];
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOld.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNew.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            if (mOld.sameRecord(oldPosition, mNew, newPosition)) {
+                return true;
+            }
+            return equal(urlOf(mOld, mOldUrls, oldPosition), urlOf(mNew, mNewUrls, newPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            if (mOld.sameRecord(oldPosition, mNew, newPosition)) {
+                return true;
+            }
+            Article oldArticle = mOld.peek(oldPosition);
+            Article newArticle = mNew.peek(newPosition);
+            return equal(oldArticle.getTitle(), newArticle.getTitle())
+                    && equal(oldArticle.getSection(), newArticle.getSection())
+                    && oldArticle.getTimeInMillis() == newArticle.getTimeInMillis()
+                    && equal(oldArticle.getThumbnailUrl(), newArticle.getThumbnailUrl())
+                    && Arrays.equals(oldArticle.getAuthors(), newArticle.getAuthors());
+        }
+
+        private static String urlOf(MappedArticleList list, String[] urls, int position) {
+            if (urls[position] == null) {
+                urls[position] = list.peek(position).getUrl();
+            }
+            return urls[position];
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
     }
 
     //Create ViewHolder to refer to
-    static class ViewHolder {
-        public TextView title;
-        TextView author;
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        public LayoutTextView title;
+        LayoutTextView author;
         TextView section;
         TextView date;
         ImageView image;
+
+        ViewHolder(View listItemView) {
+            super(listItemView);
+            //Find all the views in put into ViewHolder
+            title = (LayoutTextView) listItemView.findViewById(R.id.article_name);
+            author = (LayoutTextView) listItemView.findViewById(R.id.author_name);
+            section = (TextView) listItemView.findViewById(R.id.section);
+            date = (TextView) listItemView.findViewById(R.id.date);
+            image = (ImageView) listItemView.findViewById(R.id.image);
+            listItemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                mClickListener.onArticleClick(mArticles.get(position));
+            }
+        }
     }
 }
-
@@ -0,0 +1,120 @@
+package com.example.android.mynews;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Article bodies for the reader. A body fetched once is kept gzipped on disk, so the
+ * article opens again without the network; the bodies of rows near the screen are
+ * fetched at background priority before they are tapped. Each body is a request of
+ * its own against the API key's limits, so prefetches are held well under them, are
+ * never retried and have their own circuit breaker, leaving the feed unaffected.
+ */
+final class ArticleBodies {
+
+    // Holds the gzipped bodies between launches
+    private static final String BODIES_DIRECTORY = "bodies";
+    // A few hundred articles; the ones read longest ago go first
+    private static final long MAX_STORED_BYTES = 8 * 1024 * 1024;
+    // Prefetches waiting at once; rows scrolled past quickly are not worth queueing
+    private static final int MAX_PENDING_PREFETCHES = 20;
+    // The key allows 12 requests a second and 5000 a day, shared with the feed; a
+    // refused prefetch is tried again the next time its row comes to rest on screen
+    private static final RateLimiter PREFETCHES_PER_SECOND = new RateLimiter(3, 1000);
+    private static final RateLimiter PREFETCHES_PER_DAY =
+            new RateLimiter(1000, 24 * 60 * 60 * 1000);
+
+    private static ArticleBodies sInstance;
+
+    private final ArticleBodyStore mStore;
+    // URLs being prefetched, so a row seen twice is fetched once; guarded by itself
+    private final Set<String> mPending = new HashSet<>();
+
+    private ArticleBodies(Context context) {
+        mStore = new ArticleBodyStore(new File(context.getFilesDir(), BODIES_DIRECTORY),
+                MAX_STORED_BYTES);
+    }
+
+    static synchronized ArticleBodies getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleBodies(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Loads the body of the article with the given URL, from disk if it is there and
+     * from the Guardian if not. The listener gets null if neither has it.
+     */
+    LoadScheduler.Task<String> load(final String url,
+                                    LoadScheduler.OnLoadFinishedListener<String> listener) {
+        // The user is waiting on this one, so it goes ahead of any prefetch
+        return LoadScheduler.getInstance().schedule(LoadScheduler.Priority.INTERACTIVE,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable) {
+                        String body = mStore.read(url);
+                        return body != null ? body : fetch(url, false, cancellable);
+                    }
+                }, listener);
+    }
+
+    /**
+     * Fetches and stores the bodies of the articles that are not stored yet.
+     */
+    void prefetch(List<Article> articles) {
+        for (Article article : articles) {
+            final String url = article.getUrl();
+            if (url == null) {
+                continue;
+            }
+            synchronized (mPending) {
+                if (mPending.size() >= MAX_PENDING_PREFETCHES || !mPending.add(url)) {
+                    continue;
+                }
+            }
+            LoadScheduler.getInstance().schedule(LoadScheduler.Priority.BACKGROUND,
+                    new LoadScheduler.Job<Void>() {
+                        // Decided by the first attempt, so a prefetch that is pre-empted
+                        // and run again is not charged against the limits twice
+                        private Boolean mAdmitted;
+
+                        @Override
+                        public Void run(HttpTransport.Cancellable cancellable) {
+                            if (mAdmitted == null) {
+                                mAdmitted = !mStore.contains(url)
+                                        && PREFETCHES_PER_SECOND.tryAcquire()
+                                        && PREFETCHES_PER_DAY.tryAcquire();
+                            }
+                            if (mAdmitted) {
+                                fetch(url, true, cancellable);
+                            }
+                            return null;
+                        }
+                    },
+                    new LoadScheduler.OnLoadFinishedListener<Void>() {
+                        @Override
+                        public void onLoadFinished(Void result) {
+                            // Only once the task is done: a pre-empted one is still queued
+                            synchronized (mPending) {
+                                mPending.remove(url);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private String fetch(String url, boolean prefetch, HttpTransport.Cancellable cancellable) {
+        String bodyUrl = GuardianQuery.bodyUrl(url, BuildConfig.GUARDIAN_API_KEY);
+        String body = bodyUrl == null ? null
+                : QueryUtils.fetchBodyText(bodyUrl, prefetch, cancellable);
+        if (body != null) {
+            mStore.write(url, body);
+        }
+        return body;
+    }
+}
@@ -1,43 +1,345 @@
 package com.example.android.mynews;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.content.Loader;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
-// Loads a list of articles by using an AsyncTask
-public class ArticleLoader extends AsyncTaskLoader<List<Article>> {
+/**
+ * Loads a list of articles on the shared {@link LoadScheduler} at interactive priority.
+ * A result that is still fresh is handed straight back when the activity returns,
+ * and cancelling the loader closes the socket of the request in progress.
+ */
+public class ArticleLoader extends Loader<List<Article>> {
 
     // LogTag Used For Troubleshooting
     private static final String LOG_TAG = ArticleLoader.class.getName();
-    // Query URL
-    private String mUrl;
+    // Parsed articles are handed to the UI at most once per frame
+    private static final long FRAME_MILLIS = 16;
+    // How long a multi-topic feed waits for its slowest source
+    private static final long FAN_OUT_TIMEOUT_MILLIS = 10 * 1000;
+    // How long a delivered result is shown again on restart without loading
+    private static final long FRESH_MILLIS = 60 * 1000;
+    // Query URLs, one per topic
+    private List<String> mUrls;
+    // What the URLs ask of the network, so paging and thumbnails can follow suit
+    private final FetchProfile mFetchProfile;
+    // Used to post article batches back to the UI thread
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // Receives article batches while the response is still being parsed
+    private volatile OnArticleBatchListener mBatchListener;
+    private volatile FeedFanOut mFanOut;
+
+    // The load in progress, if any; only touched on the UI thread
+    private LoadScheduler.Task<List<Article>> mTask;
+    // Bumped for every load, so batches and results of a superseded one are dropped
+    private int mLoadId;
+    private List<Article> mResult;
+    private long mResultTime;
+
+    /**
+     * Receives articles on the UI thread before the full list is delivered to onLoadFinished:
+     * frame-sized batches to append for a single query, and the merged feed so far when
+     * several topics are fetched at once.
+     */
+    public interface OnArticleBatchListener {
+        void onArticleBatch(List<Article> batch);
+
+        void onPartialResult(List<Article> articles);
+    }
 
     /**
      * Constructs a new {@link ArticleLoader}.
      *
      * @param context of the activity
      * @param url     to load data from
+     * @param profile the URL was built for
+     */
+    public ArticleLoader(Context context, String url, FetchProfile profile) {
+        this(context, Collections.singletonList(url), profile);
+    }
+
+    /**
+     * Constructs a new {@link ArticleLoader} that merges several queries into one feed.
+     *
+     * @param context of the activity
+     * @param urls    to load data from, each sorted newest first
+     * @param profile the URLs were built for
      */
-    public ArticleLoader(Context context, String url) {
+    public ArticleLoader(Context context, List<String> urls, FetchProfile profile) {
         super(context);
-        mUrl = url;
+        mUrls = urls;
+        mFetchProfile = profile;
+    }
+
+    List<String> getUrls() {
+        return mUrls;
+    }
+
+    FetchProfile getFetchProfile() {
+        return mFetchProfile;
+    }
+
+    // Loaders outlive the activity on rotation, so the listener is swapped in and out by it
+    void setOnArticleBatchListener(OnArticleBatchListener listener) {
+        mBatchListener = listener;
     }
 
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        // Coming back to the activity with fresh data in hand needs no new fetch
+        boolean isFresh = mResult != null
+                && SystemClock.elapsedRealtime() - mResultTime < FRESH_MILLIS;
+        if (mResult != null) {
+            deliverResult(mResult);
+        }
+        if (takeContentChanged() || (!isFresh && mTask == null)) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        cancelTask();
+        final int loadId = ++mLoadId;
+        mTask = LoadScheduler.getInstance().schedule(LoadScheduler.Priority.INTERACTIVE,
+                new LoadScheduler.Job<List<Article>>() {
+                    @Override
+                    public List<Article> run(HttpTransport.Cancellable cancellable) {
+                        return loadInBackground(loadId, cancellable);
+                    }
+                },
+                new LoadScheduler.OnLoadFinishedListener<List<Article>>() {
+                    @Override
+                    public void onLoadFinished(final List<Article> articles) {
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onLoadComplete(loadId, articles);
+                            }
+                        });
+                    }
+                });
+    }
+
+    // Back on the UI thread with the result of a load
+    private void onLoadComplete(int loadId, List<Article> articles) {
+        if (loadId != mLoadId || isReset()) {
+            return;
+        }
+        mTask = null;
+        mResult = articles;
+        mResultTime = SystemClock.elapsedRealtime();
+        if (isStarted()) {
+            deliverResult(articles);
+        }
+    }
+
+    // Called when a newer search supersedes this one: close the socket mid-read. The
+    // LoaderManager holds the newer loader back until it hears the cancellation, which
+    // is posted since it only records that loader once this has returned
+    @Override
+    protected boolean onCancelLoad() {
+        if (mTask == null) {
+            return false;
+        }
+        cancelTask();
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                deliverCancellation();
+            }
+        });
+        return true;
+    }
+
+    // Restarting a search usually abandons the old loader rather than cancelling it, and
+    // nothing will read its result, so its request is closed all the same
+    @Override
+    protected void onAbandon() {
+        cancelTask();
     }
 
-    // This is on a background thread.
     @Override
-    public List<Article> loadInBackground() {
-        if (mUrl == null) {
+    protected void onReset() {
+        cancelTask();
+        mResult = null;
+    }
+
+    private void cancelTask() {
+        mLoadId++;
+        if (mTask != null) {
+            mTask.cancel(false);
+            mTask = null;
+        }
+        FeedFanOut fanOut = mFanOut;
+        if (fanOut != null) {
+            fanOut.cancel();
+        }
+    }
+
+    // This is on a background thread.
+    private List<Article> loadInBackground(int loadId, final HttpTransport.Cancellable cancellable) {
+        if (mUrls == null || mUrls.isEmpty()) {
             return null;
         }
-        // Perform the network request
-        // Parse the response
+        if (mUrls.size() > 1) {
+            return loadFanOut(loadId, cancellable);
+        }
+        // Answer from memory if this query was loaded recently,
+        // or share the fetch another loader already started for it
+        final String url = mUrls.get(0);
+        final String queryKey = ArticleStore.keyFor(url);
+        final BatchPublisher publisher = new BatchPublisher(loadId);
+        ArticleCache cache = ArticleCache.getInstance();
+        List<Article> articles = cache.get(queryKey, new Callable<List<Article>>() {
+            @Override
+            public List<Article> call() {
+                return loadFromStoreAndNetwork(url, queryKey, publisher, cancellable);
+            }
+        }, cancellable);
+        Log.d(LOG_TAG, cache.toString());
+        return articles;
+    }
+
+    // Fetches every topic at once and shows the merged feed as each one finishes
+    private List<Article> loadFanOut(final int loadId, HttpTransport.Cancellable cancellable) {
+        FeedFanOut fanOut = new FeedFanOut(ArticleStore.getInstance(getContext()));
+        mFanOut = fanOut;
+        if (cancellable.isCancelled()) {
+            fanOut.cancel();
+        }
+        return fanOut.fetch(mUrls, FAN_OUT_TIMEOUT_MILLIS,
+                new FeedFanOut.OnPartialResultListener() {
+                    @Override
+                    public void onPartialResult(final List<Article> merged) {
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                OnArticleBatchListener listener = mBatchListener;
+                                if (listener != null && loadId == mLoadId
+                                        && !isAbandoned() && !isReset()) {
+                                    listener.onPartialResult(merged);
+                                }
+                            }
+                        });
+                    }
+                });
+    }
+
+    private List<Article> loadFromStoreAndNetwork(String url, String queryKey,
+                                                  BatchPublisher publisher,
+                                                  HttpTransport.Cancellable cancellable) {
+        // Show whatever was stored for this query before going to the network
+        ArticleStore store = ArticleStore.getInstance(getContext());
+        ArticleStore.Entry cached = store.load(queryKey);
+        if (cached != null) {
+            for (Article article : cached.articles) {
+                publisher.onArticleParsed(article);
+            }
+            publisher.flush();
+        }
+        if (!isOnline()) {
+            return cached == null ? null : cached.articles;
+        }
+        if (cached != null && cached.isFresh()) {
+            // Synced moments ago, so there is nothing for the network to add
+            return cached.articles;
+        }
+
+        // Perform the network request, revalidating the stored copy if there is one
+        // Parse the response, publishing articles as they are read when nothing is shown yet
         // Extract a list of articles.
-        return QueryUtils.getArticleData(mUrl);
+        QueryUtils.Result result;
+        if (cached == null) {
+            result = QueryUtils.fetchArticles(url, null, null, publisher, cancellable);
+            publisher.flush();
+        } else {
+            result = QueryUtils.fetchArticles(url, cached.eTag, cached.lastModified, null,
+                    cancellable);
+        }
+
+        if (result == null) {
+            // The request failed, so keep showing the stored copy
+            return cached == null ? null : cached.articles;
+        }
+        if (result.notModified) {
+            store.markFresh(queryKey);
+            return cached.articles;
+        }
+        RefreshStats.getInstance().recordFullLoad(result.timings);
+        // Stored with the validators only when the whole body was read: a cut-off page
+        // saved with them would be confirmed by every later 304 and never replaced
+        if (result.isComplete() && !result.articles.isEmpty() && !cancellable.isCancelled()) {
+            store.save(queryKey, result.articles, result.eTag, result.lastModified);
+        }
+        return result.articles;
+    }
+
+    // Check the state of the data network before trying to revalidate
+    private boolean isOnline() {
+        ConnectivityManager conMgr = (ConnectivityManager)
+                getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo network = conMgr == null ? null : conMgr.getActiveNetworkInfo();
+        return network != null && network.isConnected();
+    }
+
+    /**
+     * Collects parsed articles on the loading thread and posts them to the
+     * UI thread once a frame's worth of time has passed since the last post.
+     */
+    private class BatchPublisher implements QueryUtils.OnArticleParsedListener {
+        private final int mPublisherLoadId;
+        private final long mStartTime = SystemClock.uptimeMillis();
+        private long mLastPostTime = mStartTime;
+        private boolean mPostedFirst;
+        private List<Article> mPending = new ArrayList<>();
+
+        BatchPublisher(int loadId) {
+            mPublisherLoadId = loadId;
+        }
+
+        @Override
+        public void onArticleParsed(Article article) {
+            mPending.add(article);
+            long now = SystemClock.uptimeMillis();
+            if (!mPostedFirst || now - mLastPostTime >= FRAME_MILLIS) {
+                if (!mPostedFirst) {
+                    Log.d(LOG_TAG, "First article parsed after " + (now - mStartTime) + " ms");
+                }
+                mPostedFirst = true;
+                mLastPostTime = now;
+                flush();
+            }
+        }
+
+        void flush() {
+            if (mPending.isEmpty()) {
+                return;
+            }
+            final List<Article> batch = mPending;
+            mPending = new ArrayList<>();
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // A restarted or reset loader must not add rows to the new search
+                    OnArticleBatchListener listener = mBatchListener;
+                    if (listener != null && mPublisherLoadId == mLoadId
+                            && !isAbandoned() && !isReset()) {
+                        listener.onArticleBatch(batch);
+                    }
+                }
+            });
+        }
     }
 }
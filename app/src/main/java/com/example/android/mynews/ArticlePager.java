@@ -0,0 +1,203 @@
+package com.example.android.mynews;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Grows the feed one Guardian page at a time as the user scrolls. The next page is fetched
+ * once the user is within a prefetch distance of the end, and that distance grows with
+ * scroll speed. Memory stays bounded however far the user goes because the adapter keeps
+ * its rows in an {@link ArticleFile} rather than on the heap.
+ */
+final class ArticlePager extends RecyclerView.OnScrollListener {
+
+    // Rows of look-ahead when scrolling slowly; the most it can grow to is set by the profile
+    private static final int MIN_PREFETCH_DISTANCE = 5;
+    // Roughly how long a page takes to arrive; rows scrolled past in that time are prefetched
+    private static final float EXPECTED_FETCH_SECONDS = 1.5f;
+    // Weight of the newest sample in the smoothed scroll speed
+    private static final float SPEED_SMOOTHING = 0.3f;
+    // Pages at the end of the feed a new page is checked against for repeated articles
+    private static final int DUPLICATE_CHECK_PAGES = 2;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ArticleAdapter mAdapter;
+
+    private String mBaseUrl;
+    // Articles per page and the most rows to look ahead, from the feed's fetch profile
+    private int mPageSize;
+    private int mMaxPrefetchDistance;
+    // Pages in the adapter, including the first
+    private int mPageCount;
+    // Bumped on reset so pages fetched for the previous feed are dropped
+    private int mGeneration;
+    private boolean mFetching;
+    private boolean mReachedEnd;
+    // Rows the paged feed should have; differs from the adapter while a new list is diffed
+    private int mExpectedCount;
+    private LoadScheduler.Task<List<Article>> mTask;
+
+    // Scroll speed in rows per second, smoothed across scroll events
+    private float mRowsPerSecond;
+    private int mLastVisiblePosition = RecyclerView.NO_POSITION;
+    private long mLastScrollTime;
+
+    ArticlePager(ArticleAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * Starts paging a new feed whose first page is already in the adapter, fetched
+     * with the given profile. A null base URL turns paging off, e.g. for merged
+     * multi-topic feeds.
+     */
+    void reset(String baseUrl, int firstPageCount, FetchProfile profile) {
+        stop();
+        mBaseUrl = baseUrl;
+        mPageSize = profile.pageSize;
+        mMaxPrefetchDistance = Math.max(MIN_PREFETCH_DISTANCE, profile.maxPrefetchRows);
+        mPageCount = 1;
+        mExpectedCount = firstPageCount;
+        mReachedEnd = baseUrl == null || firstPageCount < mPageSize;
+    }
+
+    /**
+     * Cancels any page still being fetched and stops paging until the next reset.
+     */
+    void stop() {
+        mGeneration++;
+        mFetching = false;
+        mBaseUrl = null;
+        if (mTask != null) {
+            mTask.cancel(false);
+            mTask = null;
+        }
+    }
+
+    /**
+     * Keeps the expected row count in step after newer articles were inserted at the top.
+     */
+    void onRowsPrepended(int count) {
+        mExpectedCount += count;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // Wait until the adapter shows the first page of this feed
+        if (mBaseUrl == null || mAdapter.getItemCount() != mExpectedCount) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (last == RecyclerView.NO_POSITION) {
+            return;
+        }
+        updateScrollSpeed(last);
+        if (!mReachedEnd && mAdapter.getItemCount() - 1 - last <= prefetchDistance()) {
+            fetchPage(mPageCount);
+        }
+    }
+
+    private void updateScrollSpeed(int lastVisiblePosition) {
+        long now = SystemClock.uptimeMillis();
+        if (mLastVisiblePosition != RecyclerView.NO_POSITION && now > mLastScrollTime) {
+            float sample = Math.abs(lastVisiblePosition - mLastVisiblePosition) * 1000f
+                    / (now - mLastScrollTime);
+            mRowsPerSecond += SPEED_SMOOTHING * (sample - mRowsPerSecond);
+        }
+        mLastVisiblePosition = lastVisiblePosition;
+        mLastScrollTime = now;
+    }
+
+    // Far enough ahead that a page fetched now arrives before the user reaches it
+    private int prefetchDistance() {
+        int distance = MIN_PREFETCH_DISTANCE + (int) (mRowsPerSecond * EXPECTED_FETCH_SECONDS);
+        return Math.min(distance, mMaxPrefetchDistance);
+    }
+
+    private void fetchPage(final int page) {
+        if (mFetching) {
+            return;
+        }
+        mFetching = true;
+        final int generation = mGeneration;
+        final String pageUrl = GuardianQuery.pageUrl(mBaseUrl, page + 1);
+        // Prefetch gives way to a search the user is waiting on
+        mTask = LoadScheduler.getInstance().schedule(LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<List<Article>>() {
+                    @Override
+                    public List<Article> run(final HttpTransport.Cancellable cancellable) {
+                        return ArticleCache.getInstance().get(
+                                ArticleStore.keyFor(pageUrl), new Callable<List<Article>>() {
+                                    @Override
+                                    public List<Article> call() {
+                                        QueryUtils.Result result = QueryUtils.fetchArticles(
+                                                pageUrl, null, null, null, cancellable);
+                                        return result == null ? null : result.articles;
+                                    }
+                                }, cancellable);
+                    }
+                },
+                new LoadScheduler.OnLoadFinishedListener<List<Article>>() {
+                    @Override
+                    public void onLoadFinished(final List<Article> articles) {
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (generation == mGeneration) {
+                                    onPageFetched(articles);
+                                }
+                            }
+                        });
+                    }
+                });
+    }
+
+    private void onPageFetched(List<Article> articles) {
+        mFetching = false;
+        mTask = null;
+        if (articles == null) {
+            // Failed; the next scroll event will try again
+            return;
+        }
+        List<Article> fresh = withoutShown(articles);
+        if (!fresh.isEmpty()) {
+            mAdapter.append(fresh);
+            mExpectedCount += fresh.size();
+        }
+        mPageCount++;
+        if (articles.size() < mPageSize) {
+            mReachedEnd = true;
+        }
+    }
+
+    // Pages are fetched by offset from a feed that gains articles at the top, so each one
+    // published since the last page pushes an article already shown onto this one
+    private List<Article> withoutShown(List<Article> page) {
+        int count = mAdapter.getItemCount();
+        int from = Math.max(0, count - DUPLICATE_CHECK_PAGES * mPageSize);
+        Set<String> shownUrls = new HashSet<>();
+        for (int i = from; i < count; i++) {
+            Article article = mAdapter.getItem(i);
+            if (article != null) {
+                shownUrls.add(article.getUrl());
+            }
+        }
+        List<Article> fresh = new ArrayList<>(page.size());
+        for (Article article : page) {
+            if (shownUrls.add(article.getUrl())) {
+                fresh.add(article);
+            }
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.android.mynews;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Refreshes a feed by asking the Guardian only for articles published since the newest
+ * one already shown, instead of downloading and parsing the whole result set again.
+ * Pages are fetched until one reaches back to the articles already shown, so a burst of
+ * news is not cut off at one page, and the refreshed first page is stored for the next
+ * launch.
+ */
+final class ArticleRefresher {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = ArticleRefresher.class.getSimpleName();
+
+    // The Guardian's from-date filter works on whole UTC days
+    private static final String FROM_DATE_PATTERN = "yyyy-MM-dd";
+    // Enough for a busy news day; past this the feed is better reloaded in full
+    private static final int MAX_REFRESH_PAGES = 5;
+    // Used when the feed's URL does not say how many articles a page holds
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
+    private final ArticleStore mStore;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // Bumped on cancel so a refresh for the previous feed is dropped
+    private int mGeneration;
+    private LoadScheduler.Task<List<Article>> mTask;
+
+    ArticleRefresher(ArticleStore store) {
+        mStore = store;
+    }
+
+    /**
+     * Receives, on the UI thread, the articles newer than those shown, newest first.
+     * The list is empty if nothing new was published, or null if the refresh failed.
+     */
+    interface OnNewArticlesListener {
+        void onNewArticles(List<Article> newer);
+    }
+
+    /**
+     * Fetches the articles of the feed at baseUrl published after the newest of shown.
+     */
+    void refresh(final String baseUrl, ShownArticles shown,
+                 final OnNewArticlesListener listener) {
+        cancel();
+        final int generation = mGeneration;
+
+        // Everything at or before this time is already in the list
+        final long newestShown = shown.newest;
+        final Set<String> shownUrls = shown.urls;
+        final int pageSize = pageSizeOf(baseUrl);
+        final List<Article> shownFirstPage =
+                shown.firstPage.subList(0, Math.min(pageSize, shown.firstPage.size()));
+
+        Uri.Builder builder = Uri.parse(baseUrl).buildUpon()
+                .appendQueryParameter("order-by", "newest");
+        if (newestShown != ArticleDates.NO_TIME) {
+            SimpleDateFormat fromDate = new SimpleDateFormat(FROM_DATE_PATTERN, Locale.US);
+            fromDate.setTimeZone(TimeZone.getTimeZone("UTC"));
+            builder.appendQueryParameter("from-date", fromDate.format(new Date(newestShown)));
+        }
+        final String refreshUrl = builder.build().toString();
+        // A refresh gives way to a search the user is waiting on
+        mTask = LoadScheduler.getInstance().schedule(LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<List<Article>>() {
+                    @Override
+                    public List<Article> run(HttpTransport.Cancellable cancellable) {
+                        List<Article> newer = new ArrayList<>();
+                        for (int page = 1; page <= MAX_REFRESH_PAGES; page++) {
+                            String pageUrl = page == 1 ? refreshUrl
+                                    : GuardianQuery.pageUrl(refreshUrl, page);
+                            QueryUtils.Result result = QueryUtils.fetchArticles(
+                                    pageUrl, null, null, null, cancellable);
+                            if (result == null || result.articles == null) {
+                                if (page == 1) {
+                                    return null;
+                                }
+                                // What the earlier pages found is kept, the rest is lost
+                                break;
+                            }
+                            RefreshStats.getInstance().recordIncrementalLoad(result.timings);
+                            // from-date is a whole day, so drop what that day already brought in
+                            boolean reachedShown = false;
+                            for (Article article : result.articles) {
+                                if (article.getTimeInMillis() > newestShown
+                                        && !shownUrls.contains(article.getUrl())) {
+                                    newer.add(article);
+                                } else {
+                                    reachedShown = true;
+                                }
+                            }
+                            if (reachedShown || result.articles.size() < pageSize) {
+                                break;
+                            }
+                        }
+                        Log.d(LOG_TAG, RefreshStats.getInstance().toString());
+                        Collections.sort(newer, Article.NEWEST_FIRST);
+                        return keep(baseUrl, newer, shownFirstPage, pageSize);
+                    }
+                },
+                new LoadScheduler.OnLoadFinishedListener<List<Article>>() {
+                    @Override
+                    public void onLoadFinished(final List<Article> newer) {
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (generation == mGeneration) {
+                                    mTask = null;
+                                    listener.onNewArticles(newer);
+                                }
+                            }
+                        });
+                    }
+                });
+    }
+
+    // Stores the refreshed first page of the feed, so the next launch and a search for the
+    // same feed open on it, and returns the newer articles
+    private List<Article> keep(String baseUrl, List<Article> newer, List<Article> shown,
+                               int pageSize) {
+        if (newer.isEmpty()) {
+            return newer;
+        }
+        List<Article> firstPage = new ArrayList<>(pageSize);
+        for (int i = 0; i < newer.size() && firstPage.size() < pageSize; i++) {
+            firstPage.add(newer.get(i));
+        }
+        for (int i = 0; i < shown.size() && firstPage.size() < pageSize; i++) {
+            firstPage.add(shown.get(i));
+        }
+        String queryKey = ArticleStore.keyFor(baseUrl);
+        // No validators: the refresh asked a different question from the feed's own URL
+        mStore.save(queryKey, firstPage, null, null);
+        ArticleCache.getInstance().put(queryKey, firstPage);
+        return newer;
+    }
+
+    private static int pageSizeOf(String baseUrl) {
+        try {
+            return Integer.parseInt(Uri.parse(baseUrl).getQueryParameter("page-size"));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    /**
+     * Abandons the refresh in progress, if any.
+     */
+    void cancel() {
+        mGeneration++;
+        if (mTask != null) {
+            mTask.cancel(false);
+            mTask = null;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.android.mynews;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Disk-backed store of the last {@link Article} results fetched for each query,
+ * so a known search can be shown before the network answers, or while offline.
+ */
+final class ArticleStore extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "articles.db";
+    // Version 6 drops pages that may have been stored from a body cut off part way
+    private static final int DATABASE_VERSION = 6;
+
+    // One row per query with the validators the Guardian sent back for it
+    private static final String TABLE_QUERIES = "queries";
+    private static final String COLUMN_QUERY_KEY = "query_key";
+    private static final String COLUMN_ETAG = "etag";
+    private static final String COLUMN_LAST_MODIFIED = "last_modified";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+
+    // One row per article in the order the Guardian returned them
+    private static final String TABLE_ARTICLES = "articles";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_AUTHORS = "authors";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_PUBLISHED_AT = "published_at";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+
+    // Contributor names are stored in one column, separated by a character no name contains
+    private static final char AUTHOR_SEPARATOR = '\n';
+
+    // How long stored results are shown without revalidating them
+    private static final long FRESH_MILLIS = 10 * 60 * 1000;
+
+    // How many queries keep their results; every search typed and every fetch profile
+    // stores its own, so the ones synced longest ago are dropped past this
+    static final int MAX_QUERIES = 50;
+
+    private static ArticleStore sInstance;
+
+    /**
+     * The articles stored for a query, along with the validators
+     * to send when asking the Guardian whether they have changed.
+     */
+    static final class Entry {
+        final List<Article> articles;
+        final String eTag;
+        final String lastModified;
+        final long fetchedAt;
+
+        Entry(List<Article> articles, String eTag, String lastModified, long fetchedAt) {
+            this.articles = articles;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /**
+         * Returns whether these were fetched or revalidated so recently, e.g. by the
+         * background sync, that asking the network again would add nothing.
+         */
+        boolean isFresh() {
+            // Stored across launches, so only the wall clock can tell how old they are
+            return System.currentTimeMillis() - fetchedAt < FRESH_MILLIS;
+        }
+    }
+
+    private ArticleStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    // Every loader shares one helper so SQLite serializes the writes
+    static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the cache key for a request URL: the canonical form of the query without
+     * the API key, so the stored results do not depend on which key fetched them or
+     * on how the search was typed.
+     */
+    static String keyFor(String requestUrl) {
+        return GuardianQuery.keyFor(requestUrl);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_QUERIES + " ("
+                + COLUMN_QUERY_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_ETAG + " TEXT, "
+                + COLUMN_LAST_MODIFIED + " TEXT, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_QUERY_KEY + " TEXT NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_AUTHORS + " TEXT NOT NULL, "
+                + COLUMN_SECTION + " TEXT, "
+                + COLUMN_PUBLISHED_AT + " INTEGER NOT NULL, "
+                + COLUMN_URL + " TEXT, "
+                + COLUMN_THUMBNAIL_URL + " TEXT, "
+                + "PRIMARY KEY (" + COLUMN_QUERY_KEY + ", " + COLUMN_POSITION + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The store only holds copies of what the Guardian serves, so start over
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUERIES);
+        onCreate(db);
+    }
+
+    /**
+     * Returns the stored results for the given cache key, or null if there are none.
+     */
+    Entry load(String queryKey) {
+        SQLiteDatabase db = getReadableDatabase();
+        String[] selectionArgs = {queryKey};
+
+        Cursor queryCursor = db.query(TABLE_QUERIES, null, COLUMN_QUERY_KEY + " = ?",
+                selectionArgs, null, null, null);
+        String eTag;
+        String lastModified;
+        long fetchedAt;
+        try {
+            if (!queryCursor.moveToFirst()) {
+                return null;
+            }
+            eTag = queryCursor.getString(queryCursor.getColumnIndexOrThrow(COLUMN_ETAG));
+            lastModified = queryCursor.getString(
+                    queryCursor.getColumnIndexOrThrow(COLUMN_LAST_MODIFIED));
+            fetchedAt = queryCursor.getLong(queryCursor.getColumnIndexOrThrow(COLUMN_FETCHED_AT));
+        } finally {
+            queryCursor.close();
+        }
+
+        List<Article> articles = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_ARTICLES, null, COLUMN_QUERY_KEY + " = ?",
+                selectionArgs, null, null, COLUMN_POSITION);
+        try {
+            int titleIndex = cursor.getColumnIndexOrThrow(COLUMN_TITLE);
+            int authorsIndex = cursor.getColumnIndexOrThrow(COLUMN_AUTHORS);
+            int sectionIndex = cursor.getColumnIndexOrThrow(COLUMN_SECTION);
+            int publishedAtIndex = cursor.getColumnIndexOrThrow(COLUMN_PUBLISHED_AT);
+            int urlIndex = cursor.getColumnIndexOrThrow(COLUMN_URL);
+            int thumbnailUrlIndex = cursor.getColumnIndexOrThrow(COLUMN_THUMBNAIL_URL);
+            while (cursor.moveToNext()) {
+                articles.add(new Article(cursor.getString(titleIndex),
+                        splitAuthors(cursor.getString(authorsIndex)),
+                        cursor.getString(sectionIndex),
+                        cursor.getLong(publishedAtIndex),
+                        cursor.getString(urlIndex),
+                        cursor.getString(thumbnailUrlIndex)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return new Entry(articles, eTag, lastModified, fetchedAt);
+    }
+
+    /**
+     * Replaces the stored results for the given cache key, dropping those of the queries
+     * synced longest ago once more than {@link #MAX_QUERIES} are stored.
+     */
+    void save(String queryKey, List<Article> articles, String eTag, String lastModified) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] whereArgs = {queryKey};
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_ARTICLES, COLUMN_QUERY_KEY + " = ?", whereArgs);
+
+            ContentValues queryValues = new ContentValues();
+            queryValues.put(COLUMN_QUERY_KEY, queryKey);
+            queryValues.put(COLUMN_ETAG, eTag);
+            queryValues.put(COLUMN_LAST_MODIFIED, lastModified);
+            queryValues.put(COLUMN_FETCHED_AT, System.currentTimeMillis());
+            db.insertWithOnConflict(TABLE_QUERIES, null, queryValues,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < articles.size(); i++) {
+                Article article = articles.get(i);
+                values.clear();
+                values.put(COLUMN_QUERY_KEY, queryKey);
+                values.put(COLUMN_POSITION, i);
+                values.put(COLUMN_TITLE, article.getTitle());
+                values.put(COLUMN_AUTHORS, joinAuthors(article.getAuthors()));
+                values.put(COLUMN_SECTION, article.getSection());
+                values.put(COLUMN_PUBLISHED_AT, article.getTimeInMillis());
+                values.put(COLUMN_URL, article.getUrl());
+                values.put(COLUMN_THUMBNAIL_URL, article.getThumbnailUrl());
+                db.insert(TABLE_ARTICLES, null, values);
+            }
+            trimQueries(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Drops the results of every query beyond the MAX_QUERIES synced most recently
+    private static void trimQueries(SQLiteDatabase db) {
+        String oldest = "SELECT " + COLUMN_QUERY_KEY + " FROM " + TABLE_QUERIES
+                + " ORDER BY " + COLUMN_FETCHED_AT + " DESC LIMIT -1 OFFSET " + MAX_QUERIES;
+        db.execSQL("DELETE FROM " + TABLE_ARTICLES + " WHERE " + COLUMN_QUERY_KEY
+                + " IN (" + oldest + ")");
+        db.execSQL("DELETE FROM " + TABLE_QUERIES + " WHERE " + COLUMN_QUERY_KEY
+                + " IN (" + oldest + ")");
+    }
+
+    /**
+     * Records that the stored results for the given cache key were just confirmed unchanged.
+     */
+    void markFresh(String queryKey) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_FETCHED_AT, System.currentTimeMillis());
+        getWritableDatabase().update(TABLE_QUERIES, values, COLUMN_QUERY_KEY + " = ?",
+                new String[]{queryKey});
+    }
+
+    private static String joinAuthors(String[] authors) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < authors.length; i++) {
+            if (i > 0) {
+                joined.append(AUTHOR_SEPARATOR);
+            }
+            joined.append(authors[i]);
+        }
+        return joined.toString();
+    }
+
+    private static String[] splitAuthors(String joined) {
+        if (joined.isEmpty()) {
+            return null;
+        }
+        return joined.split(String.valueOf(AUTHOR_SEPARATOR));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.mynews;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prefetches the bodies of the rows on screen, and of a few below them, whenever the
+ * list comes to rest, so the reader usually opens an article from disk.
+ */
+final class BodyPrefetcher extends RecyclerView.OnScrollListener {
+
+    // Rows below the last visible one whose bodies are fetched too
+    private static final int ROWS_AHEAD = 5;
+
+    private final ArticleAdapter mAdapter;
+    private final ArticleBodies mBodies;
+    // Off for the lean profile, where the data is better kept for the feed
+    private boolean mEnabled;
+
+    BodyPrefetcher(ArticleAdapter adapter, ArticleBodies bodies) {
+        mAdapter = adapter;
+        mBodies = bodies;
+    }
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            prefetchVisible(recyclerView);
+        }
+    }
+
+    /**
+     * Prefetches the bodies of the rows now on screen and just below.
+     */
+    void prefetchVisible(RecyclerView recyclerView) {
+        if (!mEnabled || mAdapter.getItemCount() == 0) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            // Not laid out yet, so start from the top
+            first = 0;
+            last = 0;
+        }
+        int end = Math.min(mAdapter.getItemCount(), last + 1 + ROWS_AHEAD);
+        List<Article> rows = new ArrayList<>(end - first);
+        for (int i = first; i < end; i++) {
+            rows.add(mAdapter.getItem(i));
+        }
+        mBodies.prefetch(rows);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.android.mynews;
+
+import android.text.format.DateUtils;
+
+/**
+ * Turns publication times into the labels shown in the list: relative
+ * ("3 hours ago") for the last day, otherwise the date from {@link ArticleDates}.
+ */
+final class DateLabels {
+
+    // Articles newer than this are shown as "3 hours ago" rather than a date
+    private static final long RELATIVE_WINDOW_MILLIS = DateUtils.DAY_IN_MILLIS;
+
+    // Create a private constructor
+    private DateLabels() {
+    }
+
+    /**
+     * Returns the label shown for a publication time. Call on the UI thread.
+     */
+    static CharSequence formatForDisplay(long timeInMillis, long now) {
+        if (timeInMillis == ArticleDates.NO_TIME) {
+            return "";
+        }
+        if (now - timeInMillis >= 0 && now - timeInMillis < RELATIVE_WINDOW_MILLIS) {
+            return DateUtils.getRelativeTimeSpanString(timeInMillis, now,
+                    DateUtils.MINUTE_IN_MILLIS);
+        }
+        return ArticleDates.formatDay(timeInMillis);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.android.mynews;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches several Guardian queries at the same time and merges their newest-first
+ * results into one feed. What the {@link ArticleStore} holds for the sources is
+ * published first, so the feed opens warm after a restart, and each source is then
+ * revalidated against its stored copy. The merged feed is republished each time a
+ * source finishes, so a slow source only delays its own articles, and one that misses
+ * the deadline keeps its stored articles, if any.
+ */
+final class FeedFanOut {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = FeedFanOut.class.getSimpleName();
+
+    // Upper bound on requests running at once, whatever the number of topics
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+    private static final long IDLE_THREAD_MILLIS = 30 * 1000;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            MAX_PARALLEL_REQUESTS, MAX_PARALLEL_REQUESTS, IDLE_THREAD_MILLIS,
+            TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Receives the merged feed of every source that has finished so far.
+     */
+    interface OnPartialResultListener {
+        void onPartialResult(List<Article> merged);
+    }
+
+    private final ArticleStore mStore;
+    // One per source, so cancel() can close every socket still open
+    private final List<HttpTransport.Cancellable> mCancellables = new ArrayList<>();
+    private boolean mCancelled;
+
+    FeedFanOut(ArticleStore store) {
+        mStore = store;
+    }
+
+    /**
+     * Fetches every URL on the shared executor and returns the merged feed of those
+     * that finished within the timeout. Called on the loading thread.
+     */
+    List<Article> fetch(List<String> requestUrls, long timeoutMillis,
+                        OnPartialResultListener listener) {
+        // The newest articles of each source so far: stored until it is fetched
+        List<List<Article>> sources = new ArrayList<>(requestUrls.size());
+        List<ArticleStore.Entry> stored = new ArrayList<>(requestUrls.size());
+        for (String requestUrl : requestUrls) {
+            ArticleStore.Entry entry = mStore.load(ArticleStore.keyFor(requestUrl));
+            stored.add(entry);
+            sources.add(entry == null ? Collections.<Article>emptyList() : sorted(entry.articles));
+        }
+        List<Article> merged = merge(sources);
+        if (listener != null && !merged.isEmpty()) {
+            listener.onPartialResult(merged);
+        }
+
+        CompletionService<List<Article>> completion = new ExecutorCompletionService<>(EXECUTOR);
+        List<Future<List<Article>>> futures = new ArrayList<>();
+        Map<Future<List<Article>>, Integer> sourceIndexes = new HashMap<>();
+        for (int i = 0; i < requestUrls.size(); i++) {
+            HttpTransport.Cancellable cancellable = new HttpTransport.Cancellable();
+            synchronized (this) {
+                if (mCancelled) {
+                    cancellable.cancel();
+                }
+                mCancellables.add(cancellable);
+            }
+            Future<List<Article>> future = completion.submit(
+                    new SourceFetch(mStore, requestUrls.get(i), stored.get(i), cancellable));
+            futures.add(future);
+            sourceIndexes.put(future, i);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                long remaining = deadline - System.nanoTime();
+                Future<List<Article>> done = completion.poll(remaining, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    Log.w(LOG_TAG, (futures.size() - i) + " sources missed the deadline");
+                    break;
+                }
+                List<Article> articles = getQuietly(done);
+                if (articles == null || articles.isEmpty()) {
+                    // Failed or empty, so whatever was stored for it stays
+                    continue;
+                }
+                sources.set(sourceIndexes.get(done), articles);
+                merged = merge(sources);
+                if (listener != null && i < futures.size() - 1) {
+                    listener.onPartialResult(merged);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Whatever is still running is no longer wanted
+            cancel();
+            for (Future<List<Article>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Aborts every request of this fan-out that has not finished yet.
+     */
+    synchronized void cancel() {
+        mCancelled = true;
+        for (HttpTransport.Cancellable cancellable : mCancellables) {
+            cancellable.cancel();
+        }
+    }
+
+    /**
+     * Merges lists that are each sorted newest first into one newest-first list,
+     * keeping only the first article seen for each URL.
+     */
+    static List<Article> merge(List<List<Article>> sources) {
+        int total = 0;
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (List<Article> source : sources) {
+            total += source.size();
+            if (!source.isEmpty()) {
+                heads.add(new Cursor(source));
+            }
+        }
+
+        List<Article> merged = new ArrayList<>(total);
+        Set<String> seenUrls = new HashSet<>(total * 2);
+        while (!heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            Article article = cursor.head();
+            if (seenUrls.add(article.getUrl())) {
+                merged.add(article);
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static List<Article> getQuietly(Future<List<Article>> future)
+            throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem fetching a source", e.getCause());
+            return null;
+        }
+    }
+
+    // The merge relies on every source being newest first
+    private static List<Article> sorted(List<Article> articles) {
+        List<Article> sorted = new ArrayList<>(articles);
+        Collections.sort(sorted, Article.NEWEST_FIRST);
+        return sorted;
+    }
+
+    // Fetches one source through the shared cache, so repeated topics are not refetched,
+    // revalidating what was stored for it and storing what changed
+    private static final class SourceFetch implements Callable<List<Article>> {
+        private final ArticleStore mStore;
+        private final String mRequestUrl;
+        // May be null
+        private final ArticleStore.Entry mStored;
+        private final HttpTransport.Cancellable mCancellable;
+
+        SourceFetch(ArticleStore store, String requestUrl, ArticleStore.Entry stored,
+                    HttpTransport.Cancellable cancellable) {
+            mStore = store;
+            mRequestUrl = requestUrl;
+            mStored = stored;
+            mCancellable = cancellable;
+        }
+
+        @Override
+        public List<Article> call() {
+            final String queryKey = ArticleStore.keyFor(mRequestUrl);
+            List<Article> articles = ArticleCache.getInstance().get(queryKey,
+                    new Callable<List<Article>>() {
+                        @Override
+                        public List<Article> call() {
+                            return fetchOrRevalidate(queryKey);
+                        }
+                    }, mCancellable);
+            return articles == null ? null : sorted(articles);
+        }
+
+        private List<Article> fetchOrRevalidate(String queryKey) {
+            if (mStored != null && mStored.isFresh()) {
+                return mStored.articles;
+            }
+            QueryUtils.Result result = mStored == null
+                    ? QueryUtils.fetchArticles(mRequestUrl, null, null, null, mCancellable)
+                    : QueryUtils.fetchArticles(mRequestUrl, mStored.eTag, mStored.lastModified,
+                    null, mCancellable);
+            if (result == null) {
+                return mStored == null ? null : mStored.articles;
+            }
+            if (result.notModified) {
+                mStore.markFresh(queryKey);
+                return mStored.articles;
+            }
+            if (result.isComplete() && !result.articles.isEmpty()) {
+                mStore.save(queryKey, result.articles, result.eTag, result.lastModified);
+            }
+            return result.articles;
+        }
+    }
+
+    // Position in one source list, ordered so the newest head comes out of the queue first
+    private static final class Cursor implements Comparable<Cursor> {
+        private final List<Article> mSource;
+        private int mIndex;
+
+        Cursor(List<Article> source) {
+            mSource = source;
+        }
+
+        Article head() {
+            return mSource.get(mIndex);
+        }
+
+        boolean advance() {
+            return ++mIndex < mSource.size();
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return Article.NEWEST_FIRST.compare(head(), other.head());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.android.mynews;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the search text of a feed into its Guardian request URLs. Shared by the
+ * activity and the background sync, so both fetch and store a feed under the same keys.
+ */
+final class FeedRequests {
+
+    // Separates the topics of a multi-topic feed in the search text
+    private static final String TOPIC_SEPARATOR = ",";
+    // Marks a topic that follows a Guardian section rather than searching for words
+    private static final String SECTION_PREFIX = "section:";
+
+    // Create a private constructor
+    private FeedRequests() {
+    }
+
+    /**
+     * Builds one Guardian request URL per topic in the search text. Topics are separated
+     * by commas, and a topic written as "section:technology" follows that section
+     * instead of searching for the words. Several topics are fetched newest first,
+     * so their results can be merged into one feed, and topics that are the same
+     * search once normalized are fetched once. The profile sets whether contributors
+     * and thumbnails are asked for and, for a single topic, the page size; the merged
+     * feed of several topics is not paged, so each keeps the Guardian's default page.
+     */
+    static List<String> build(String searchedText, FetchProfile profile) {
+        List<String> topics = new ArrayList<>();
+        for (String topic : searchedText.split(TOPIC_SEPARATOR)) {
+            topic = topic.trim();
+            if (!topic.isEmpty()) {
+                topics.add(topic);
+            }
+        }
+        if (topics.isEmpty()) {
+            topics.add(searchedText);
+        }
+
+        // Keyed by the canonical query, so topics that differ only in spacing or case
+        // are fetched once
+        Map<String, String> requestUrls = new LinkedHashMap<>();
+        for (String topic : topics) {
+            GuardianQuery.Builder query = new GuardianQuery.Builder();
+            if (topics.size() == 1) {
+                query.pageSize(profile.pageSize);
+            }
+            if (profile.expandTags) {
+                query.contributors();
+            }
+            if (profile.thumbnails) {
+                query.thumbnails();
+            }
+            if (topic.startsWith(SECTION_PREFIX)) {
+                query.section(topic.substring(SECTION_PREFIX.length()));
+            } else {
+                query.terms(topic);
+            }
+            if (topics.size() > 1) {
+                query.newestFirst();
+            }
+            GuardianQuery built = query.build();
+            requestUrls.put(built.cacheKey(), built.toUrl(BuildConfig.GUARDIAN_API_KEY));
+        }
+        return new ArrayList<>(requestUrls.values());
+    }
+
+    /**
+     * Returns whether the search text follows a section instead of searching for words.
+     */
+    static boolean isSection(String searchedText) {
+        return searchedText.startsWith(SECTION_PREFIX);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.mynews;
+
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Brings the stored results of a feed up to date ahead of time, so the next launch
+ * opens on fresh articles instead of waiting on the network. Each query is revalidated
+ * with the validators stored for it, so an unchanged feed costs a 304 and no parsing.
+ */
+final class FeedSync {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = FeedSync.class.getSimpleName();
+
+    private final ArticleStore mStore;
+
+    FeedSync(ArticleStore store) {
+        mStore = store;
+    }
+
+    /**
+     * Syncs every query of a feed in one go. Stops at the first cancelled request.
+     *
+     * @return true if every query is now up to date
+     */
+    boolean syncAll(List<String> requestUrls, HttpTransport.Cancellable cancellable) {
+        boolean allSynced = true;
+        for (String requestUrl : requestUrls) {
+            if (cancellable.isCancelled()) {
+                return false;
+            }
+            allSynced &= sync(requestUrl, cancellable);
+        }
+        return allSynced;
+    }
+
+    /**
+     * Revalidates the stored results of one query, replacing them if they changed.
+     *
+     * @return true if the stored results are now up to date
+     */
+    boolean sync(String requestUrl, HttpTransport.Cancellable cancellable) {
+        String queryKey = ArticleStore.keyFor(requestUrl);
+        ArticleStore.Entry stored = mStore.load(queryKey);
+        QueryUtils.Result result = stored == null
+                ? QueryUtils.fetchArticles(requestUrl, null, null, null, cancellable)
+                : QueryUtils.fetchArticles(requestUrl, stored.eTag, stored.lastModified, null,
+                cancellable);
+        if (result == null) {
+            Log.e(LOG_TAG, "Could not sync " + queryKey);
+            return false;
+        }
+        if (result.notModified) {
+            mStore.markFresh(queryKey);
+            return true;
+        }
+        if (!result.isComplete() || result.articles.isEmpty()) {
+            // An empty page is not worth replacing what was there
+            return true;
+        }
+        mStore.save(queryKey, result.articles, result.eTag, result.lastModified);
+        // A process that is still alive shows the synced feed without reading the store
+        ArticleCache.getInstance().put(queryKey, result.articles);
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.mynews;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Periodically fetches the saved search in the background and stores the results,
+ * so the next launch opens on fresh articles. Runs only on an unmetered network and
+ * a battery that is not low, and backs off when it is started without them.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class FeedSyncJobService extends JobService {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = FeedSyncJobService.class.getSimpleName();
+
+    private static final int JOB_ID = 1;
+    // How often the saved search is synced
+    private static final long SYNC_PERIOD_MILLIS = 3 * 60 * 60 * 1000;
+    // Window in which the system may run the sync alongside other jobs to save wake-ups
+    private static final long SYNC_FLEX_MILLIS = 60 * 60 * 1000;
+    // First wait after a failed or deferred sync, doubled on each further one
+    private static final long BACKOFF_MILLIS = 10 * 60 * 1000;
+    // Below this charge, and not plugged in, the sync is put off
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    private LoadScheduler.Task<Boolean> mTask;
+
+    /**
+     * Schedules the periodic sync unless it already is. JobScheduler needs Lollipop,
+     * so older devices keep loading on launch only.
+     */
+    static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) {
+            return;
+        }
+        // Scheduling again would restart the period, so leave a pending sync alone
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, FeedSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setBackoffCriteria(BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            builder.setPeriodic(SYNC_PERIOD_MILLIS, SYNC_FLEX_MILLIS);
+        } else {
+            builder.setPeriodic(SYNC_PERIOD_MILLIS);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        scheduler.schedule(builder.build());
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        // Constraints are checked when the job starts, but the network or battery can
+        // have changed since, and battery-not-low is only a constraint from Oreo on
+        if (isMetered() || isBatteryLow()) {
+            jobFinished(params, true);
+            return true;
+        }
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        String savedSearch = prefs.getString(getString(R.string.search_key),
+                getString(R.string.search_default));
+        final List<String> requestUrls = FeedRequests.build(savedSearch.trim(),
+                NetworkQuality.currentProfile(this));
+        final FeedSync sync = new FeedSync(ArticleStore.getInstance(this));
+
+        // Every topic of the saved search is synced in this one wake-up,
+        // behind anything the user is waiting on
+        mTask = LoadScheduler.getInstance().schedule(LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<Boolean>() {
+                    @Override
+                    public Boolean run(HttpTransport.Cancellable cancellable) {
+                        boolean synced = sync.syncAll(requestUrls, cancellable);
+                        // Synced articles are searchable on the device from the next launch
+                        ArticleIndex.getInstance().writeIfChanged(
+                                MyNewsApplication.indexFile(FeedSyncJobService.this));
+                        return synced;
+                    }
+                },
+                new LoadScheduler.OnLoadFinishedListener<Boolean>() {
+                    @Override
+                    public void onLoadFinished(Boolean synced) {
+                        boolean retry = synced == null || !synced;
+                        if (retry) {
+                            Log.e(LOG_TAG, "Feed sync failed, backing off");
+                        }
+                        jobFinished(params, retry);
+                    }
+                });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints no longer hold, so drop the request and try again later
+        if (mTask != null) {
+            mTask.cancel(false);
+            mTask = null;
+        }
+        return true;
+    }
+
+    private boolean isMetered() {
+        ConnectivityManager conMgr =
+                (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        return conMgr == null || conMgr.isActiveNetworkMetered();
+    }
+
+    private boolean isBatteryLow() {
+        // The battery status is a sticky broadcast, so no receiver is needed to read it
+        Intent battery = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        boolean plugged = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        return !plugged && level >= 0 && scale > 0 && level * 100 / scale < LOW_BATTERY_PERCENT;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.android.mynews;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+/**
+ * Times the frames drawn while the article list scrolls and counts those dropped, so
+ * scroll smoothness shows up in {@link Metrics} next to the bind times that cause it.
+ * Frames are only watched while the list is moving and metrics are on.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class FrameRecorder extends RecyclerView.OnScrollListener
+        implements Choreographer.FrameCallback {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final long mFrameIntervalNanos;
+    private boolean mRecording;
+    // Start of the previous frame, or 0 before the first one of a scroll
+    private long mLastFrameNanos;
+
+    /**
+     * Creates a recorder for a display refreshing at the given rate.
+     */
+    FrameRecorder(float refreshRate) {
+        mFrameIntervalNanos = (long) (NANOS_PER_SECOND / refreshRate);
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            stop();
+        } else if (!mRecording && Metrics.isEnabled()) {
+            mRecording = true;
+            mLastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRecording) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long elapsed = frameTimeNanos - mLastFrameNanos;
+            Metrics.FRAME.recordNanos(elapsed);
+            // Rounded, as frame times jitter around the interval
+            long dropped = (elapsed + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (dropped > 0) {
+                Metrics.DROPPED_FRAMES.add(dropped);
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stops watching frames until the list scrolls again.
+     */
+    void stop() {
+        if (mRecording) {
+            mRecording = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.android.mynews;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Shows a line or two of row text from a {@link TextLayoutCache}, so binding a row
+ * attaches a layout that was built in the background instead of measuring the text
+ * on the UI thread the way a TextView would.
+ */
+public class LayoutTextView extends View {
+
+    private TextLayoutCache mLayouts;
+    private CharSequence mText;
+    // Null until measured with the current text
+    private Layout mLayout;
+
+    public LayoutTextView(Context context) {
+        super(context);
+    }
+
+    public LayoutTextView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Shows the text, laid out by the cache.
+     */
+    void setText(CharSequence text, TextLayoutCache layouts) {
+        mText = text == null ? "" : text;
+        // Drawn straight from a layout, so accessibility services read it from here
+        setContentDescription(mText);
+        mLayouts = layouts;
+        mLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int textWidth = width - getPaddingLeft() - getPaddingRight();
+        int textHeight = 0;
+        if (mLayouts != null && textWidth > 0) {
+            if (mLayout == null || mLayout.getWidth() != textWidth) {
+                mLayout = mLayouts.get(mText, textWidth);
+            }
+            textHeight = mLayout.getLineTop(shownLines());
+        }
+        int height = textHeight + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        // Before M the layout holds every line, so the extra ones are clipped off
+        canvas.clipRect(0, 0, mLayout.getWidth(), mLayout.getLineTop(shownLines()));
+        mLayout.draw(canvas);
+        canvas.restore();
+    }
+
+    private int shownLines() {
+        return Math.min(mLayout.getLineCount(), mLayouts.getMaxLines());
+    }
+}
@@ -3,40 +3,48 @@ package com.example.android.mynews;
 import android.app.LoaderManager;
 import android.app.LoaderManager.LoaderCallbacks;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
 import android.preference.PreferenceManager;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.util.ArrayList;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.List;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import butterknife.Unbinder;
 
-public class MainActivity extends AppCompatActivity implements LoaderCallbacks<List<Article>>, SharedPreferences.OnSharedPreferenceChangeListener {
+public class MainActivity extends AppCompatActivity implements LoaderCallbacks<List<Article>>,
+        SharedPreferences.OnSharedPreferenceChangeListener, ArticleLoader.OnArticleBatchListener,
+        ArticleAdapter.OnArticleClickListener {
 
     // Initialize all static Strings used in MainActivity
     public static final String LOG_TAG = MainActivity.class.getSimpleName();
-    private static final String GUARD_URL = "http://content.guardianapis.com/search?";
-    private static final String API_KEY_TITLE = "api-key";
-    private static final String API_KEY = "e64ad6a3-0b7a-4a46-9732-0d3a64883272";
 
     // Set and Loader ID to refer back to when Loader is Initialized
     private static final int ARTICLE_LOADER_ID = 1;
+    // Loader argument holding the search text typed into the SearchView
+    private static final String ARG_QUERY = "query";
+    // How long typing has to pause before the typed text is searched for
+    private static final long SEARCH_DEBOUNCE_MILLIS = 300;
 
     // Using ButterKnife library to reduce repetitious code
     @BindView(R.id.empty_state)
@@ -44,49 +52,98 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
     @BindView(R.id.progress_bar)
     ProgressBar mProgress;
     @BindView(R.id.list_items)
-    ListView articleListView;
+    RecyclerView articleListView;
 
     /**
      * Adapter for the list of articles
      */
     private ArticleAdapter mAdapter;
 
+    // Appends the next page as the list nears its end
+    private ArticlePager mPager;
+    // Fetches the bodies of the rows on screen for the reader
+    private BodyPrefetcher mBodyPrefetcher;
+    // Counts dropped frames while the list scrolls; null before Jelly Bean
+    private FrameRecorder mFrameRecorder;
+    // Fetches only articles newer than those shown
+    private ArticleRefresher mRefresher;
+    // Request URL of the single-topic feed shown, or null for a merged feed
+    private String mFeedUrl;
+
+    // Runs the search for the last text typed once the keyboard goes quiet
+    private final Handler mSearchHandler = new Handler();
+    private final Runnable mDebouncedSearch = new Runnable() {
+        @Override
+        public void run() {
+            startSearch(mTypedQuery);
+        }
+    };
+    private String mTypedQuery;
+    // The search text the loader was last created for
+    private String mCurrentQuery;
+    // Set while the rows of the previous search stay up until the new one has results
+    private boolean mReplaceOnNextBatch;
+    // Set while the rows come from the on-device index and the network has not answered
+    private boolean mShowingLocalResults;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         Unbinder unbinder = ButterKnife.bind(this);
 
-        // Set the ListView to Empty
-        articleListView.setEmptyView(mEmptyView);
+        // The loader outlives rotation without calling onCreateLoader again
+        if (savedInstanceState != null) {
+            mCurrentQuery = savedInstanceState.getString(ARG_QUERY);
+        }
 
         // Create a new adapter with empty list of articles as input
-        mAdapter = new ArticleAdapter(this, new ArrayList<Article>());
+        // Taps on a row come back to onArticleClick; rows live in the per-process feed file
+        mAdapter = new ArticleAdapter(this, this, ThumbnailLoader.getInstance(this),
+                MyNewsApplication.feedFile(this));
 
-        // Set the adapter on the ListView
-        // so list can populate the UI
-        articleListView.setAdapter(mAdapter);
+        // Show the EmptyView whenever the list has no rows
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateEmptyView();
+            }
 
-        // Get PreferenceManager to change the search
-        SharedPreferences prefsSearch = PreferenceManager.getDefaultSharedPreferences(this);
-        prefsSearch.registerOnSharedPreferenceChangeListener(this);
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
 
-        // Set OnClickListener so to open browser to URL for more information
-        articleListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+        });
 
-                Article currentArticle = mAdapter.getItem(position);
+        // Set the adapter on the RecyclerView
+        // so list can populate the UI
+        articleListView.setLayoutManager(new LinearLayoutManager(this));
+        articleListView.setAdapter(mAdapter);
 
-                // Convert the String URL into a URI object.
-                assert currentArticle != null;
-                Uri articleUri = Uri.parse(String.valueOf(currentArticle.getUrl()));
+        // Load more pages as the user scrolls toward the end of the list
+        mPager = new ArticlePager(mAdapter);
+        mRefresher = new ArticleRefresher(ArticleStore.getInstance(this));
+        articleListView.addOnScrollListener(mPager);
 
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, articleUri);
+        // Fetch the bodies of the rows the list comes to rest on, ahead of a tap
+        mBodyPrefetcher = new BodyPrefetcher(mAdapter, ArticleBodies.getInstance(this));
+        articleListView.addOnScrollListener(mBodyPrefetcher);
 
-                startActivity(websiteIntent);
-            }
-        });
+        // Time the frames of each scroll; the frame callback needs Jelly Bean
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameRecorder = new FrameRecorder(
+                    getWindowManager().getDefaultDisplay().getRefreshRate());
+            articleListView.addOnScrollListener(mFrameRecorder);
+        }
+
+        // Get PreferenceManager to change the search
+        SharedPreferences prefsSearch = PreferenceManager.getDefaultSharedPreferences(this);
+        prefsSearch.registerOnSharedPreferenceChangeListener(this);
 
         // Get the ConnectivityManager to check state of network.
         ConnectivityManager conMgr = (ConnectivityManager)
@@ -96,29 +153,49 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         assert conMgr != null;
         NetworkInfo network = conMgr.getActiveNetworkInfo();
 
-        // If there is a network connection then get the data
-        if (network != null && network.isConnected()) {
-            LoaderManager loaderManager = getLoaderManager();
-
-            // 1) Initialize the loader
-            // 2) Pass in the int ID constant defined above and pass in null for the bundle.
-            // 3) Pass in this activity for the LoaderCallbacks parameter
-            loaderManager.initLoader(ARTICLE_LOADER_ID, null, this);
-        } else {
-            // hide loading indicator
-            View loading = findViewById(R.id.progress_bar);
-            loading.setVisibility(View.GONE);
-
+        // Without a network connection the loader can still show the stored results
+        if (network == null || !network.isConnected()) {
             // Update empty state with "no_internet" error message
             mEmptyView.setText(R.string.no_internet);
         }
+
+        LoaderManager loaderManager = getLoaderManager();
+
+        // 1) Initialize the loader
+        // 2) Pass in the int ID constant defined above and pass in null for the bundle.
+        // 3) Pass in this activity for the LoaderCallbacks parameter
+        Loader<List<Article>> loader = loaderManager.initLoader(ARTICLE_LOADER_ID, null, this);
+        ((ArticleLoader) loader).setOnArticleBatchListener(this);
+
+        // Keep the saved search synced in the background so the next launch starts warm
+        FeedSyncJobService.schedule(this);
+    }
+
+    // Open browser to URL for more information
+    @Override
+    public void onArticleClick(Article currentArticle) {
+        // Read the article in the app rather than loading its web page in the browser
+        startActivity(ReaderActivity.intentFor(this, currentArticle));
+    }
+
+    private void updateEmptyView() {
+        mEmptyView.setVisibility(mAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
     }
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences prefs, String searchKey) {
         if (searchKey.equals(getString((R.string.search_key)))) {
-            // Clear the ListView for new search
+            String searchedText = prefs.getString(searchKey, getString(R.string.search_default));
+            // The SearchView saves what it already searched for, so there is nothing to reload
+            if (searchedText.trim().equals(mCurrentQuery)) {
+                return;
+            }
+            Bundle args = new Bundle();
+            args.putString(ARG_QUERY, searchedText);
+
+            // Clear the list for new search
             mAdapter.clear();
+            mShowingLocalResults = false;
 
             // Hide the EmptyView
             mEmptyView.setVisibility(View.GONE);
@@ -128,29 +205,130 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
             loading.setVisibility(View.VISIBLE);
 
             // Restart the loader to re-query the Guardian as the search settings has been changed.
-            getLoaderManager().restartLoader(ARTICLE_LOADER_ID, null, this);
+            mPager.stop();
+            mRefresher.cancel();
+            Loader<List<Article>> loader =
+                    getLoaderManager().restartLoader(ARTICLE_LOADER_ID, args, this);
+            ((ArticleLoader) loader).setOnArticleBatchListener(this);
+        }
+    }
+
+    /**
+     * Searches for the text typed into the SearchView. A query answered from memory is
+     * shown right away; otherwise the current rows stay up until the first new ones arrive.
+     * Restarting the loader cancels the superseded request down to its socket.
+     */
+    private void startSearch(String query) {
+        query = query == null ? "" : query.trim();
+        if (query.isEmpty() || query.equals(mCurrentQuery)) {
+            return;
+        }
+        Bundle args = new Bundle();
+        args.putString(ARG_QUERY, query);
+
+        FetchProfile profile = NetworkQuality.currentProfile(this);
+        List<String> requestUrls = FeedRequests.build(query, profile);
+        List<Article> cached = requestUrls.size() != 1 ? null
+                : ArticleCache.getInstance().peek(ArticleStore.keyFor(requestUrls.get(0)));
+        // Articles already seen that match are shown at once, and the full result from
+        // the network is diffed in over them when it arrives. Only single-topic searches
+        // are answered this way: the index matches every word of one query, and has no
+        // way to merge several topics or follow a section, so those wait on the network
+        List<Article> local = cached != null || requestUrls.size() != 1
+                || FeedRequests.isSection(query) ? null
+                : ArticleIndex.getInstance().search(query, profile.pageSize);
+        mShowingLocalResults = false;
+        if (cached != null) {
+            mReplaceOnNextBatch = false;
+            mAdapter.submitList(cached);
+        } else if (local != null && !local.isEmpty()) {
+            mReplaceOnNextBatch = false;
+            mShowingLocalResults = true;
+            mAdapter.submitList(local);
+        } else {
+            mReplaceOnNextBatch = true;
+            mProgress.setVisibility(View.VISIBLE);
+        }
+
+        // The restarted loader answers a cached query from memory without a fetch
+        mPager.stop();
+        mRefresher.cancel();
+        Loader<List<Article>> loader =
+                getLoaderManager().restartLoader(ARTICLE_LOADER_ID, args, this);
+        ((ArticleLoader) loader).setOnArticleBatchListener(this);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(ARG_QUERY, mCurrentQuery);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Keep what was fetched searchable after the process is gone
+        MyNewsApplication.saveIndex(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSearchHandler.removeCallbacks(mDebouncedSearch);
+        mRefresher.cancel();
+        if (mFrameRecorder != null) {
+            mFrameRecorder.stop();
+        }
+        // The loader survives rotation, so stop it from posting batches to this activity
+        Loader<List<Article>> loader = getLoaderManager().getLoader(ARTICLE_LOADER_ID);
+        if (loader != null) {
+            ((ArticleLoader) loader).setOnArticleBatchListener(null);
         }
     }
 
     @Override
     public Loader<List<Article>> onCreateLoader(int i, Bundle bundle) {
-        // When searchPrefs are changed the loader will be created again after updated info
-        SharedPreferences searchPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        String searchedText = searchPrefs.getString(
-                getString(R.string.search_key),
-                getString(R.string.search_default));
+        // Live searches pass their text in; otherwise use the saved search
+        String searchedText = bundle == null ? null : bundle.getString(ARG_QUERY);
+        if (searchedText == null) {
+            // When searchPrefs are changed the loader will be created again after updated info
+            SharedPreferences searchPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+            searchedText = searchPrefs.getString(
+                    getString(R.string.search_key),
+                    getString(R.string.search_default));
+        }
+        mCurrentQuery = searchedText.trim();
 
-        // Static string referred to at the top to build upon to create Uri.
-        Uri baseUri = Uri.parse(GUARD_URL);
-        Uri.Builder builder = baseUri.buildUpon();
+        // Slow links get a lean feed and fast ones a rich one
+        FetchProfile profile = NetworkQuality.currentProfile(this);
+        return new ArticleLoader(this, FeedRequests.build(mCurrentQuery, profile), profile);
+    }
 
-        builder.appendQueryParameter("format", "json")
-                .appendQueryParameter("show-references", "author")
-                .appendQueryParameter("show-tags", "contributor")
-                .appendQueryParameter("q", searchedText)
-                .appendQueryParameter(API_KEY_TITLE, API_KEY);
+    @Override
+    public void onArticleBatch(List<Article> batch) {
+        // Show the rows parsed so far while the rest of the response is still downloading
+        View loadingIndicator = findViewById(R.id.progress_bar);
+        loadingIndicator.setVisibility(View.GONE);
+        if (mShowingLocalResults) {
+            // Appending would repeat the local rows; the full result replaces them instead
+            return;
+        }
+        if (mReplaceOnNextBatch) {
+            // The first rows of a live search replace those of the previous one
+            mReplaceOnNextBatch = false;
+            mAdapter.clear();
+        }
+        mAdapter.append(batch);
+    }
 
-        return new ArticleLoader(this, builder.build().toString());
+    @Override
+    public void onPartialResult(List<Article> articles) {
+        // Show the topics that have finished while the slower ones are still loading
+        View loadingIndicator = findViewById(R.id.progress_bar);
+        loadingIndicator.setVisibility(View.GONE);
+        mReplaceOnNextBatch = false;
+        mShowingLocalResults = false;
+        mAdapter.submitList(articles);
     }
 
     @Override
@@ -158,10 +336,9 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         // Hide loading indicator
         View loadingIndicator = findViewById(R.id.progress_bar);
         loadingIndicator.setVisibility(View.GONE);
+        mReplaceOnNextBatch = false;
         // Set EmptyView to no articles found error message
         mEmptyView.setText(R.string.no_articles);
-        // Clear the adapter
-        mAdapter.clear();
 
         // Get the ConnectivityManager to check state of network.
         ConnectivityManager conMgr = (ConnectivityManager)
@@ -169,25 +346,72 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         // Get details on the current data network
         assert conMgr != null;
         NetworkInfo network = conMgr.getActiveNetworkInfo();
-        // If there is a network connection then get the data
+        // Without a network connection only the stored results can be shown
         if (network == null) {
-            loadingIndicator.setVisibility(View.GONE);
-            // Set EmptyView to no articles found error message
+            // Set EmptyView to no internet error message
             mEmptyView.setText(R.string.no_internet);
-            // Clear the adapter
-            mAdapter.clear();
         }
 
-        // If there is a valid list of articles,
-        // Then add them to the list.
+        // Offline, the articles found on the device stay up as the result
+        boolean keepLocalResults = mShowingLocalResults
+                && (articles == null || articles.isEmpty());
+        mShowingLocalResults = false;
+
+        // Diff against the rows already shown, so batches that arrived
+        // early and unchanged articles are left alone
         if (articles != null && !articles.isEmpty()) {
-            mAdapter.addAll(articles);
+            mAdapter.submitList(articles);
+        } else if (!keepLocalResults) {
+            mAdapter.clear();
         }
+
+        // Only a single-topic feed can be paged; a merged one has no single next page,
+        // and local results are reloaded in full on refresh
+        List<String> requestUrls = ((ArticleLoader) loader).getUrls();
+        mFeedUrl = requestUrls.size() == 1 && !keepLocalResults ? requestUrls.get(0) : null;
+        FetchProfile profile = ((ArticleLoader) loader).getFetchProfile();
+        mAdapter.setLoadThumbnails(profile.thumbnails);
+        mPager.reset(mFeedUrl, articles == null ? 0 : articles.size(), profile);
+        mBodyPrefetcher.setEnabled(profile.prefetchBodies);
+        // Once the new rows are laid out
+        articleListView.post(new Runnable() {
+            @Override
+            public void run() {
+                mBodyPrefetcher.prefetchVisible(articleListView);
+            }
+        });
+    }
+
+    /**
+     * Adds articles published since the newest one shown to the top of the list.
+     * Merged multi-topic feeds and empty lists are reloaded in full instead.
+     */
+    private void refreshFeed() {
+        if (mFeedUrl == null || mAdapter.getItemCount() == 0) {
+            Bundle args = new Bundle();
+            args.putString(ARG_QUERY, mCurrentQuery);
+            mPager.stop();
+            Loader<List<Article>> loader =
+                    getLoaderManager().restartLoader(ARTICLE_LOADER_ID, args, this);
+            ((ArticleLoader) loader).setOnArticleBatchListener(this);
+            return;
+        }
+        mRefresher.refresh(mFeedUrl, mAdapter.getShown(),
+                new ArticleRefresher.OnNewArticlesListener() {
+                    @Override
+                    public void onNewArticles(List<Article> newer) {
+                        if (newer != null && !newer.isEmpty()) {
+                            mAdapter.prepend(newer);
+                            mPager.onRowsPrepended(newer.size());
+                        }
+                    }
+                });
     }
 
     @Override
     public void onLoaderReset(Loader<List<Article>> loader) {
         // Loader reset, so clear data.
+        mPager.stop();
         mAdapter.clear();
     }
 
@@ -195,17 +419,79 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        // Search as the user types, once typing pauses for a moment
+        SearchView searchView = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                mTypedQuery = newText;
+                mSearchHandler.removeCallbacks(mDebouncedSearch);
+                mSearchHandler.postDelayed(mDebouncedSearch, SEARCH_DEBOUNCE_MILLIS);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                mSearchHandler.removeCallbacks(mDebouncedSearch);
+                startSearch(query);
+                // Remember a submitted search as the saved one
+                PreferenceManager.getDefaultSharedPreferences(MainActivity.this).edit()
+                        .putString(getString(R.string.search_key), query.trim())
+                        .apply();
+                return false;
+            }
+        });
+
+        // The metrics screen is only offered while metrics are being recorded
+        menu.findItem(R.id.action_metrics).setVisible(Metrics.isEnabled());
         return true;
     }
 
     @Override
     public boolean onOptionsItemSelected(MenuItem searchItem) {
         int id = searchItem.getItemId();
-        if (id == R.id.action_search) {
+        if (id == R.id.action_refresh) {
+            refreshFeed();
+            return true;
+        }
+        if (id == R.id.action_saved_search) {
             Intent settingsIntent = new Intent(this, SearchActivity.class);
             startActivity(settingsIntent);
             return true;
         }
+        if (id == R.id.action_metrics) {
+            showMetrics();
+            return true;
+        }
         return super.onOptionsItemSelected(searchItem);
     }
-}
\ No newline at end of file
+
+    // Debug screen with a snapshot of the fetch-to-render metrics
+    private void showMetrics() {
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.metrics_title)
+                .setMessage(Metrics.snapshot())
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton(R.string.metrics_reset, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        Metrics.reset();
+                    }
+                })
+                .show();
+    }
+
+    // "adb shell dumpsys activity top" prints the metrics for regression tracking
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Metrics:");
+        for (String line : Metrics.snapshot().split("\n")) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(line);
+        }
+    }
+}
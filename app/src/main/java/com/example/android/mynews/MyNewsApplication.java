@@ -0,0 +1,95 @@
+package com.example.android.mynews;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Sets up process-wide state before any activity, job or loader runs.
+ */
+public class MyNewsApplication extends Application {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = MyNewsApplication.class.getSimpleName();
+    // Holds the search index of fetched articles between launches
+    private static final String INDEX_FILE_NAME = "article-index.bin";
+    // Holds the rows of the feed for as long as the process lives
+    private static final String FEED_FILE_NAME = "feed.articles";
+
+    private static ArticleFile sFeedFile;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Debug builds record fetch-to-render metrics from the first request on
+        Metrics.setEnabled(BuildConfig.DEBUG);
+        if (BuildConfig.DEBUG) {
+            countAllocations();
+        }
+
+        // Read the search index off the UI thread; until then only new articles are found
+        final File indexFile = indexFile(this);
+        LoadScheduler.getInstance().schedule(LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<Void>() {
+                    @Override
+                    public Void run(HttpTransport.Cancellable cancellable) {
+                        ArticleIndex.getInstance().readFrom(indexFile);
+                        return null;
+                    }
+                }, null);
+    }
+
+    // Allocation counting slows the runtime down, so only debug builds turn it on. The
+    // calls are deprecated but still count on ART, and nothing has replaced them
+    @SuppressWarnings("deprecation")
+    private static void countAllocations() {
+        Debug.startAllocCounting();
+        Metrics.setAllocationSource(new Metrics.AllocationSource() {
+            @Override
+            public long threadAllocatedBytes() {
+                return Debug.getThreadAllocSize();
+            }
+        });
+    }
+
+    /**
+     * Returns the store the feed's rows are kept in. It is started afresh once per process
+     * and shared by every activity instance, so a diff still running for a destroyed
+     * activity never reads a store that has been replaced.
+     */
+    static synchronized ArticleFile feedFile(Context context) {
+        if (sFeedFile == null) {
+            try {
+                sFeedFile = ArticleFile.create(new File(context.getCacheDir(), FEED_FILE_NAME),
+                        ArticleFile.DEFAULT_WINDOW);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Keeping the feed in memory instead of a file", e);
+                sFeedFile = ArticleFile.inMemory(ArticleFile.DEFAULT_WINDOW);
+            }
+        }
+        return sFeedFile;
+    }
+
+    static File indexFile(Context context) {
+        return new File(context.getFilesDir(), INDEX_FILE_NAME);
+    }
+
+    /**
+     * Writes the articles indexed since the last save to disk, off the UI thread.
+     */
+    static void saveIndex(Context context) {
+        final File indexFile = indexFile(context);
+        LoadScheduler.getInstance().schedule(LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<Void>() {
+                    @Override
+                    public Void run(HttpTransport.Cancellable cancellable) {
+                        ArticleIndex.getInstance().writeIfChanged(indexFile);
+                        return null;
+                    }
+                }, null);
+    }
+}
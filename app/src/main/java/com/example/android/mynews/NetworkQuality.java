@@ -0,0 +1,79 @@
+package com.example.android.mynews;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.preference.PreferenceManager;
+import android.telephony.TelephonyManager;
+
+/**
+ * Picks the {@link FetchProfile} for the network the device is on. Measured Guardian
+ * responses decide it; right after a network change, the kind of network is the guess.
+ * With neither, the profile last used is kept, even by a new process such as the
+ * background sync, because the page size and fields are part of every stored feed's key.
+ */
+final class NetworkQuality {
+
+    private static final String LAST_PROFILE_KEY = "last_fetch_profile";
+
+    // The network the estimate was measured on, as type and subtype
+    private static String sLastNetwork;
+
+    // Create a private constructor
+    private NetworkQuality() {
+    }
+
+    static synchronized FetchProfile currentProfile(Context context) {
+        ConnectivityManager conMgr = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo network = conMgr == null ? null : conMgr.getActiveNetworkInfo();
+        // Offline, keep what was measured on the last network for the stored results
+        if (network != null && network.isConnected()) {
+            String networkKey = network.getType() + ":" + network.getSubtype();
+            if (!networkKey.equals(sLastNetwork)) {
+                sLastNetwork = networkKey;
+                BandwidthEstimator.getInstance().reset(hintFor(network));
+            }
+        }
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String lastProfile = prefs.getString(LAST_PROFILE_KEY, null);
+        BandwidthEstimator.Quality quality = BandwidthEstimator.getInstance().quality();
+        if (quality == null) {
+            // Nothing measured or hinted yet, so read and write the feed the last one stored
+            return lastProfile == null ? FetchProfile.STANDARD : FetchProfile.valueOf(lastProfile);
+        }
+        FetchProfile profile = FetchProfile.forQuality(quality);
+        if (!profile.name().equals(lastProfile)) {
+            prefs.edit().putString(LAST_PROFILE_KEY, profile.name()).apply();
+        }
+        return profile;
+    }
+
+    // What the cellular generation promises; other networks wait for measurements
+    private static BandwidthEstimator.Quality hintFor(NetworkInfo network) {
+        if (network.getType() != ConnectivityManager.TYPE_MOBILE) {
+            return null;
+        }
+        switch (network.getSubtype()) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return BandwidthEstimator.Quality.POOR;
+            case TelephonyManager.NETWORK_TYPE_UMTS:
+            case TelephonyManager.NETWORK_TYPE_EVDO_0:
+            case TelephonyManager.NETWORK_TYPE_EVDO_A:
+            case TelephonyManager.NETWORK_TYPE_EVDO_B:
+            case TelephonyManager.NETWORK_TYPE_HSDPA:
+            case TelephonyManager.NETWORK_TYPE_HSUPA:
+            case TelephonyManager.NETWORK_TYPE_HSPA:
+            case TelephonyManager.NETWORK_TYPE_EHRPD:
+            case TelephonyManager.NETWORK_TYPE_HSPAP:
+                return BandwidthEstimator.Quality.MODERATE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.mynews;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+import android.util.Log;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+/**
+ * Shows an article's body text inside the app, instead of cold-loading the Guardian's
+ * web page in the browser. The title and details come with the intent, so they show
+ * at once; the body comes from disk when it was prefetched, and from the Guardian
+ * otherwise.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = ReaderActivity.class.getSimpleName();
+
+    // Intent extras describing the article to show
+    private static final String EXTRA_URL = "com.example.android.mynews.extra.URL";
+    private static final String EXTRA_TITLE = "com.example.android.mynews.extra.TITLE";
+    private static final String EXTRA_AUTHORS = "com.example.android.mynews.extra.AUTHORS";
+    private static final String EXTRA_SECTION = "com.example.android.mynews.extra.SECTION";
+    private static final String EXTRA_TIME = "com.example.android.mynews.extra.TIME";
+    // Separates the author, section and date under the title
+    private static final String META_SEPARATOR = " | ";
+    // The whole open should take less than this, so setting the text alone must too
+    private static final long OPEN_GOAL_MILLIS = 100;
+
+    @BindView(R.id.reader_title)
+    TextView mTitleView;
+    @BindView(R.id.reader_meta)
+    TextView mMetaView;
+    @BindView(R.id.reader_progress)
+    ProgressBar mProgress;
+    @BindView(R.id.reader_body)
+    TextView mBodyView;
+
+    private final Handler mMainHandler = new Handler();
+    private LoadScheduler.Task<String> mTask;
+    private String mUrl;
+    // Started when the reader is created, stopped once the body is shown
+    private long mOpenTimer;
+
+    /**
+     * Returns the intent that opens the article in the reader.
+     */
+    static Intent intentFor(Context context, Article article) {
+        return new Intent(context, ReaderActivity.class)
+                .putExtra(EXTRA_URL, article.getUrl())
+                .putExtra(EXTRA_TITLE, article.getTitle())
+                .putExtra(EXTRA_AUTHORS, article.getAuthorLabel())
+                .putExtra(EXTRA_SECTION, article.getSection())
+                .putExtra(EXTRA_TIME, article.getTimeInMillis());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        mOpenTimer = Metrics.start();
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+        ButterKnife.bind(this);
+
+        Intent intent = getIntent();
+        mUrl = intent.getStringExtra(EXTRA_URL);
+        mTitleView.setText(intent.getStringExtra(EXTRA_TITLE));
+        mMetaView.setText(metaLine(intent));
+
+        mProgress.setVisibility(View.VISIBLE);
+        mTask = ArticleBodies.getInstance(this).load(mUrl,
+                new LoadScheduler.OnLoadFinishedListener<String>() {
+                    @Override
+                    public void onLoadFinished(final String body) {
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                showBody(body);
+                            }
+                        });
+                    }
+                });
+    }
+
+    // Author, section and date, leaving out whichever the article does not have
+    private String metaLine(Intent intent) {
+        List<String> parts = new ArrayList<>(3);
+        String authors = intent.getStringExtra(EXTRA_AUTHORS);
+        parts.add(authors == null ? getString(R.string.no_author) : authors);
+        String section = intent.getStringExtra(EXTRA_SECTION);
+        if (section != null) {
+            parts.add(section);
+        }
+        long timeInMillis = intent.getLongExtra(EXTRA_TIME, ArticleDates.NO_TIME);
+        if (timeInMillis != ArticleDates.NO_TIME) {
+            parts.add(DateLabels.formatForDisplay(timeInMillis, System.currentTimeMillis())
+                    .toString());
+        }
+        return TextUtils.join(META_SEPARATOR, parts);
+    }
+
+    private void showBody(String body) {
+        mTask = null;
+        mProgress.setVisibility(View.GONE);
+        if (TextUtils.isEmpty(body)) {
+            // Offline with nothing stored, or an article without text such as a video
+            mBodyView.setText(R.string.reader_unavailable);
+            mBodyView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl)));
+                }
+            });
+            return;
+        }
+        // A long body is laid out right here on the UI thread
+        long textStart = SystemClock.uptimeMillis();
+        mBodyView.setText(body);
+        long textMillis = SystemClock.uptimeMillis() - textStart;
+        Metrics.READER_TEXT.recordMillis(textMillis);
+        Metrics.READER_OPEN.stop(mOpenTimer);
+        if (textMillis > OPEN_GOAL_MILLIS) {
+            Log.w(LOG_TAG, "Setting " + body.length() + " characters of body took "
+                    + textMillis + " ms");
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mTask != null) {
+            mTask.cancel(false);
+        }
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+}
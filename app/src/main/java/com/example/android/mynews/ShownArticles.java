@@ -0,0 +1,87 @@
+package com.example.android.mynews;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What a feed refresh needs to know of the rows shown: the newest publication time,
+ * the URL of every row and the first page of them. Kept up to date off the UI thread
+ * as the rows change, so starting a refresh does not read the whole list.
+ */
+final class ShownArticles {
+
+    // The longest page any fetch profile asks for
+    private static final int FIRST_PAGE_ROWS = FetchProfile.RICH.pageSize;
+
+    static final ShownArticles NONE = new ShownArticles(ArticleDates.NO_TIME,
+            Collections.<String>emptySet(), Collections.<Article>emptyList());
+
+    // Everything published at or before this time is already shown
+    final long newest;
+    final Set<String> urls;
+    final List<Article> firstPage;
+
+    private ShownArticles(long newest, Set<String> urls, List<Article> firstPage) {
+        this.newest = newest;
+        this.urls = urls;
+        this.firstPage = firstPage;
+    }
+
+    /**
+     * Summarizes a whole list. Its rows are peeked at, so they stay out of the file's window.
+     */
+    static ShownArticles of(MappedArticleList articles) {
+        long newest = ArticleDates.NO_TIME;
+        Set<String> urls = new HashSet<>();
+        List<Article> firstPage = new ArrayList<>(FIRST_PAGE_ROWS);
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.peek(i);
+            newest = Math.max(newest, article.getTimeInMillis());
+            urls.add(article.getUrl());
+            if (firstPage.size() < FIRST_PAGE_ROWS) {
+                firstPage.add(article);
+            }
+        }
+        return new ShownArticles(newest, Collections.unmodifiableSet(urls),
+                Collections.unmodifiableList(firstPage));
+    }
+
+    /**
+     * Returns the summary once the given articles are added after the rows.
+     */
+    ShownArticles plus(List<Article> batch) {
+        List<Article> firstPage = new ArrayList<>(this.firstPage);
+        for (int i = 0; i < batch.size() && firstPage.size() < FIRST_PAGE_ROWS; i++) {
+            firstPage.add(batch.get(i));
+        }
+        return with(batch, firstPage);
+    }
+
+    /**
+     * Returns the summary once the given articles are added before the rows.
+     */
+    ShownArticles plusFirst(List<Article> newer) {
+        List<Article> firstPage = new ArrayList<>(FIRST_PAGE_ROWS);
+        for (int i = 0; i < newer.size() && firstPage.size() < FIRST_PAGE_ROWS; i++) {
+            firstPage.add(newer.get(i));
+        }
+        for (int i = 0; i < this.firstPage.size() && firstPage.size() < FIRST_PAGE_ROWS; i++) {
+            firstPage.add(this.firstPage.get(i));
+        }
+        return with(newer, firstPage);
+    }
+
+    private ShownArticles with(List<Article> added, List<Article> firstPage) {
+        long newest = this.newest;
+        Set<String> urls = new HashSet<>(this.urls);
+        for (Article article : added) {
+            newest = Math.max(newest, article.getTimeInMillis());
+            urls.add(article.getUrl());
+        }
+        return new ShownArticles(newest, Collections.unmodifiableSet(urls),
+                Collections.unmodifiableList(firstPage));
+    }
+}
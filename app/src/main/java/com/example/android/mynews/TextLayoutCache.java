@@ -0,0 +1,128 @@
+package com.example.android.mynews;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Text layouts for one style of row text, such as article titles, built on a
+ * background thread as articles arrive so a row being bound only attaches a layout
+ * that is ready. Layouts are keyed by their text and all share one width, learned
+ * from the first row measured; until then a guess is used.
+ */
+final class TextLayoutCache {
+
+    // Layouts are built one at a time, behind the diffs and decodes on other threads
+    private static final Executor LAYOUT_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // A few pages of rows for each style
+    private static final int MAX_LAYOUTS = 200;
+
+    private final TextPaint mPaint;
+    private final int mMaxLines;
+    private final LruCache<CharSequence, Layout> mLayouts = new LruCache<>(MAX_LAYOUTS);
+    // Width in pixels the layouts are built for; layouts of another width are dropped
+    private volatile int mWidth;
+
+    private TextLayoutCache(TextPaint paint, int maxLines, int width) {
+        mPaint = paint;
+        mMaxLines = maxLines;
+        mWidth = width;
+    }
+
+    /**
+     * Creates a cache for text of the given size and color, cut off after maxLines,
+     * guessing the width is the screen less the given pixels until a row is measured.
+     */
+    static TextLayoutCache forStyle(Context context, int textSizeId, int colorId, int maxLines,
+                                    int marginPixels) {
+        Resources resources = context.getResources();
+        TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(resources.getDimension(textSizeId));
+        paint.setColor(ContextCompat.getColor(context, colorId));
+        int width = resources.getDisplayMetrics().widthPixels - marginPixels;
+        return new TextLayoutCache(paint, maxLines, Math.max(width, 1));
+    }
+
+    int getMaxLines() {
+        return mMaxLines;
+    }
+
+    /**
+     * Returns the layout of the text at the given width, building it on this thread
+     * if it was not built ahead of time.
+     */
+    Layout get(CharSequence text, int width) {
+        if (width != mWidth) {
+            // The guess was wrong, or the screen rotated; later layouts use this width
+            mWidth = width;
+            mLayouts.evictAll();
+        }
+        Layout layout = mLayouts.get(text);
+        if (layout == null || layout.getWidth() != width) {
+            Metrics.LAYOUTS_ON_BIND.add(1);
+            layout = build(text, width, Metrics.TEXT_LAYOUT_ON_BIND);
+            mLayouts.put(text, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Lays out each of the texts in the background, skipping nulls and any already
+     * laid out.
+     */
+    void precompute(List<? extends CharSequence> texts) {
+        final List<CharSequence> pending = new ArrayList<>(texts.size());
+        for (CharSequence text : texts) {
+            if (text != null && mLayouts.get(text) == null) {
+                pending.add(text);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        LAYOUT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (CharSequence text : pending) {
+                    int width = mWidth;
+                    Layout layout = mLayouts.get(text);
+                    if (layout == null || layout.getWidth() != width) {
+                        mLayouts.put(text, build(text, width, Metrics.TEXT_LAYOUT_AHEAD));
+                    }
+                }
+            }
+        });
+    }
+
+    // Timed apart by where it runs: only layouts built while binding cost the UI thread
+    private Layout build(CharSequence text, int width, Metrics.Timer timer) {
+        long layoutTimer = Metrics.start();
+        // A paint per layout, so the UI thread never draws with one being measured here
+        TextPaint paint = new TextPaint(mPaint);
+        Layout layout;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            layout = StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                    .setMaxLines(mMaxLines)
+                    .setEllipsize(TextUtils.TruncateAt.END)
+                    .build();
+        } else {
+            // No line limit before M; the view clips to maxLines instead
+            layout = new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL,
+                    1f, 0f, true);
+        }
+        timer.stop(layoutTimer);
+        return layout;
+    }
+}
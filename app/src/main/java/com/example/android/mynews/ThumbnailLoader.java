@@ -0,0 +1,309 @@
+package com.example.android.mynews;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads article thumbnails into row ImageViews. Decoded bitmaps are kept in a memory LRU,
+ * the encoded bytes in a size-capped disk cache, and downloads and decodes run on a small
+ * thread pool. Each bitmap is downsampled to the size of the view it is shown in, and the
+ * work for a row is cancelled as soon as that row is recycled.
+ */
+final class ThumbnailLoader {
+
+    // LogTag Used For Troubleshooting
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    // Decoding is CPU bound, so a couple of threads keeps up without starving the UI
+    private static final int DECODE_THREADS = 2;
+    private static final long DISK_CACHE_BYTES = 10 * 1024 * 1024;
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // Files still being written, which the trim leaves alone
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static ThumbnailLoader sInstance;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor mExecutor = new ThreadPoolExecutor(DECODE_THREADS,
+            DECODE_THREADS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final File mDiskCacheDir;
+    private final int mTargetSize;
+
+    private ThumbnailLoader(Context context) {
+        // Use an eighth of the app's heap for decoded thumbnails, measured in kilobytes
+        int cacheKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        mMemoryCache = new LruCache<String, Bitmap>(cacheKilobytes) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+        mDiskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        mTargetSize = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_size);
+    }
+
+    static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Shows the thumbnail at url in the view, with the placeholder until it is ready.
+     * Whatever the view was loading before is cancelled.
+     */
+    void load(ImageView view, String url, int placeholderId) {
+        cancel(view);
+        if (url == null) {
+            view.setImageResource(placeholderId);
+            return;
+        }
+        Bitmap cached = mMemoryCache.get(url);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageResource(placeholderId);
+        LoadTask task = new LoadTask(view, url);
+        task.future = mExecutor.submit(task);
+        view.setTag(R.id.image, task);
+    }
+
+    /**
+     * Stops any load still running for the view, e.g. when its row is recycled.
+     */
+    void cancel(ImageView view) {
+        Object tag = view.getTag(R.id.image);
+        if (tag instanceof LoadTask) {
+            LoadTask task = (LoadTask) tag;
+            task.cancelled = true;
+            // Closes the download's socket, which an interrupt alone would not unblock
+            task.cancellable.cancel();
+            if (task.future != null) {
+                task.future.cancel(true);
+            }
+            view.setTag(R.id.image, null);
+        }
+    }
+
+    // Downloads or reads the bytes, decodes them, then hands the bitmap to the UI thread
+    private final class LoadTask implements Runnable {
+        final ImageView view;
+        final String url;
+        final HttpTransport.Cancellable cancellable = new HttpTransport.Cancellable();
+        volatile boolean cancelled;
+        Future<?> future;
+
+        LoadTask(ImageView view, String url) {
+            this.view = view;
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final Bitmap bitmap;
+            try {
+                byte[] encoded = readFromDisk(url);
+                if (encoded == null) {
+                    encoded = download(url, cancellable);
+                    if (encoded == null || cancelled) {
+                        return;
+                    }
+                    writeToDisk(url, encoded);
+                }
+                if (cancelled) {
+                    return;
+                }
+                bitmap = decode(encoded, mTargetSize);
+            } catch (IOException e) {
+                // A download aborted because the row was recycled is no problem
+                if (!cancelled) {
+                    Log.e(LOG_TAG, "Problem loading thumbnail " + url, e);
+                }
+                return;
+            }
+            if (bitmap == null) {
+                return;
+            }
+            mMemoryCache.put(url, bitmap);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // The row may have moved on to another article meanwhile
+                    if (!cancelled && view.getTag(R.id.image) == LoadTask.this) {
+                        view.setImageBitmap(bitmap);
+                        view.setTag(R.id.image, null);
+                    }
+                }
+            });
+        }
+    }
+
+    private static byte[] download(String url, HttpTransport.Cancellable cancellable)
+            throws IOException {
+        HttpTransport.Response response = HttpTransport.get(new URL(url), null, null,
+                cancellable);
+        try {
+            if (response.code != HttpURLConnection.HTTP_OK) {
+                Log.e(LOG_TAG, "Error response code: " + response.code);
+                return null;
+            }
+            return readFully(response.body());
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Decodes the bytes, skipping whole powers of two of pixels
+     * so the result is no smaller than the target size.
+     */
+    static Bitmap decode(byte[] encoded, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+
+        int sampleSize = 1;
+        int smallestSide = Math.min(options.outWidth, options.outHeight);
+        while (smallestSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeByteArray(encoded, 0, encoded.length, options);
+    }
+
+    // Named by the URL's digest, so two thumbnails never share a file
+    private File diskFile(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(UTF_8));
+            char[] name = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                name[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                name[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new File(mDiskCacheDir, new String(name));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private byte[] readFromDisk(String url) throws IOException {
+        File file = diskFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        // Mark the file as recently used so it is the last to be trimmed
+        file.setLastModified(System.currentTimeMillis());
+        InputStream in = new FileInputStream(file);
+        try {
+            return readFully(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeToDisk(String url, byte[] encoded) {
+        if (!mDiskCacheDir.exists() && !mDiskCacheDir.mkdirs()) {
+            return;
+        }
+        File file = diskFile(url);
+        File temp = null;
+        try {
+            // Written aside and renamed into place, so a reader never sees half a file
+            temp = File.createTempFile(file.getName(), TEMP_SUFFIX, mDiskCacheDir);
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(encoded);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot rename " + temp);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem caching thumbnail " + url, e);
+            if (temp != null && temp.exists() && !temp.delete()) {
+                Log.w(LOG_TAG, "Cannot delete " + temp);
+            }
+        }
+        trimDiskCache();
+    }
+
+    // Deletes the least recently used files until the cache is back under budget
+    private synchronized void trimDiskCache() {
+        File[] files = mDiskCacheDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String name) {
+                return !name.endsWith(TEMP_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : diff == 0 ? 0 : 1;
+            }
+        });
+        for (int i = 0; i < files.length && total > DISK_CACHE_BYTES; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
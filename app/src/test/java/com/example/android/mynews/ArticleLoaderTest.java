@@ -0,0 +1,96 @@
+package com.example.android.mynews;
+
+import android.content.Loader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cancels loads the way LoaderManager does when a search is restarted, against a local
+ * server that holds every response back.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ArticleLoaderTest {
+
+    private HttpServer mServer;
+    // Released at the end, so no load can finish while the test restarts it
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private int mCancellations;
+    private int mResults;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    mRelease.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mServer.stop(0);
+    }
+
+    @Test
+    public void restartingTwiceBeforeTheFirstLoadFinishesHearsBothCancellations() {
+        ArticleLoader loader = new ArticleLoader(RuntimeEnvironment.application,
+                "http://127.0.0.1:" + mServer.getAddress().getPort() + "/search?q=slow",
+                FetchProfile.STANDARD);
+        loader.registerListener(0, new Loader.OnLoadCompleteListener<List<Article>>() {
+            @Override
+            public void onLoadComplete(Loader<List<Article>> loader, List<Article> data) {
+                mResults++;
+            }
+        });
+        loader.registerOnLoadCanceledListener(new Loader.OnLoadCanceledListener<List<Article>>() {
+            @Override
+            public void onLoadCanceled(Loader<List<Article>> loader) {
+                mCancellations++;
+            }
+        });
+        loader.startLoading();
+
+        // Each restart cancels the load in progress and waits to hear it was cancelled
+        for (int restart = 1; restart <= 2; restart++) {
+            assertTrue(loader.cancelLoad());
+            ShadowLooper.idleMainLooper();
+            assertEquals(restart, mCancellations);
+            loader.forceLoad();
+        }
+
+        // Nothing running is cancelled straight away, without a callback
+        loader.reset();
+        assertFalse(loader.cancelLoad());
+        ShadowLooper.idleMainLooper();
+        assertEquals(2, mCancellations);
+        assertEquals(0, mResults);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * How many queries the store keeps results for.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ArticleStoreTest {
+
+    private static final List<Article> ARTICLES = Collections.singletonList(
+            new Article("Brexit talks resume", null, "Politics", 0,
+                    "https://www.theguardian.com/politics/brexit", null));
+
+    @Test
+    public void dropsTheQueriesSyncedLongestAgoPastTheCap() throws InterruptedException {
+        ArticleStore store = ArticleStore.getInstance(RuntimeEnvironment.application);
+        for (int i = 0; i < ArticleStore.MAX_QUERIES; i++) {
+            store.save("q=" + i, ARTICLES, null, null);
+            // Apart in time, so each query was synced after the one before it
+            Thread.sleep(2);
+        }
+        assertNotNull(store.load("q=0"));
+
+        // Confirming the first query again makes the second the one synced longest ago
+        store.markFresh("q=0");
+        store.save("q=" + ArticleStore.MAX_QUERIES, ARTICLES, null, null);
+
+        assertNull(store.load("q=1"));
+        assertNotNull(store.load("q=0"));
+        assertEquals(1, store.load("q=2").articles.size());
+    }
+}
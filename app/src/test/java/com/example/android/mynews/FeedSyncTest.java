@@ -0,0 +1,127 @@
+package com.example.android.mynews;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the background feed sync against a local stand-in for the Guardian API.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FeedSyncTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String PAYLOAD = "{\"response\":{\"status\":\"ok\",\"results\":[{"
+            + "\"webTitle\":\"Warm start\","
+            + "\"sectionName\":\"Technology\","
+            + "\"webPublicationDate\":\"2018-01-02T10:00:00Z\","
+            + "\"webUrl\":\"https://www.theguardian.com/technology/warm-start\","
+            + "\"tags\":[{\"webTitle\":\"A Writer\"}]}]}}";
+
+    private HttpServer mServer;
+    // Status the stand-in answers with when it is not revalidating
+    private volatile int mStatus = 200;
+    // The If-None-Match header of each request, or null where none was sent
+    private final List<String> mValidators = Collections.synchronizedList(new ArrayList<String>());
+
+    private ArticleStore mStore;
+    private FeedSync mSync;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+                mValidators.add(validator);
+                if (mStatus == 200 && ETAG.equals(validator)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else if (mStatus == 200) {
+                    byte[] body = PAYLOAD.getBytes(Charset.forName("UTF-8"));
+                    exchange.getResponseHeaders().set("ETag", ETAG);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } else {
+                    exchange.sendResponseHeaders(mStatus, -1);
+                }
+                exchange.close();
+            }
+        });
+        mServer.start();
+
+        mStore = ArticleStore.getInstance(RuntimeEnvironment.application);
+        mSync = new FeedSync(mStore);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void syncStoresFeedThenRevalidatesIt() {
+        String url = requestUrl("warm");
+
+        assertTrue(mSync.sync(url, new HttpTransport.Cancellable()));
+        ArticleStore.Entry stored = mStore.load(ArticleStore.keyFor(url));
+        assertNotNull(stored);
+        assertEquals(1, stored.articles.size());
+        assertEquals("Warm start", stored.articles.get(0).getTitle());
+        assertEquals(ETAG, stored.eTag);
+
+        // The second sync only asks whether anything changed
+        assertTrue(mSync.sync(url, new HttpTransport.Cancellable()));
+        assertEquals(2, mValidators.size());
+        assertNull(mValidators.get(0));
+        assertEquals(ETAG, mValidators.get(1));
+        assertEquals(1, mStore.load(ArticleStore.keyFor(url)).articles.size());
+    }
+
+    @Test
+    public void failedSyncKeepsStoredFeed() {
+        String url = requestUrl("failing");
+        assertTrue(mSync.sync(url, new HttpTransport.Cancellable()));
+
+        mStatus = 503;
+        assertFalse(mSync.sync(url, new HttpTransport.Cancellable()));
+        ArticleStore.Entry stored = mStore.load(ArticleStore.keyFor(url));
+        assertEquals("Warm start", stored.articles.get(0).getTitle());
+    }
+
+    @Test
+    public void cancelledSyncMakesNoRequests() {
+        HttpTransport.Cancellable cancellable = new HttpTransport.Cancellable();
+        cancellable.cancel();
+
+        List<String> urls = new ArrayList<>();
+        urls.add(requestUrl("one"));
+        urls.add(requestUrl("two"));
+        assertFalse(mSync.syncAll(urls, cancellable));
+        assertTrue(mValidators.isEmpty());
+    }
+
+    private String requestUrl(String query) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/search?format=json&q=" + query + "&api-key=test";
+    }
+}
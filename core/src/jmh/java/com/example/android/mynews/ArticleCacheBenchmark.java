@@ -0,0 +1,65 @@
+package com.example.android.mynews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and inserts on a full cache holding pages of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArticleCacheBenchmark {
+
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_ARTICLES = 500;
+    private static final int KEYS = 64;
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private ArticleCache mCache;
+    private List<Article> mPage;
+    private String[] mKeys;
+    private int mNext;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPage = GuardianPayloads.articles(results);
+        mKeys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            mKeys[i] = "http://content.guardianapis.com/search?q=topic" + i;
+        }
+        // Fill to capacity, so every put below evicts
+        mCache = new ArticleCache(TTL_MILLIS, MAX_ARTICLES);
+        for (String key : mKeys) {
+            mCache.put(key, mPage);
+        }
+    }
+
+    @Benchmark
+    public List<Article> getMostRecent() {
+        return mCache.get(mKeys[KEYS - 1]);
+    }
+
+    @Benchmark
+    public List<Article> getMissing() {
+        return mCache.get("http://content.guardianapis.com/search?q=absent");
+    }
+
+    @Benchmark
+    public void putEvicting() {
+        mCache.put(mKeys[mNext], mPage);
+        mNext = (mNext + 1) % KEYS;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.android.mynews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the Guardian's timestamps and formatting the dates shown in the list,
+ * per timestamp of a 200-result page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArticleDatesBenchmark {
+
+    private static final int RESULTS = 200;
+
+    // The sample page mixes "Z", "+00:00" and fractional-second forms
+    private static final String[] TIMESTAMPS = {
+            "2018-02-02T16:42:05Z",
+            "2018-02-03T09:05:11Z",
+            "2018-02-01T12:00:47.000Z",
+            "2018-02-03T07:30:00Z",
+            "2018-02-02T17:51:20+00:00"
+    };
+
+    private long[] mTimes;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Article> articles = GuardianPayloads.articles(RESULTS);
+        mTimes = new long[articles.size()];
+        for (int i = 0; i < mTimes.length; i++) {
+            mTimes[i] = articles.get(i).getTimeInMillis();
+        }
+    }
+
+    @Benchmark
+    public void parseIso8601(Blackhole blackhole) {
+        for (String timestamp : TIMESTAMPS) {
+            blackhole.consume(ArticleDates.parseIso8601(timestamp));
+        }
+    }
+
+    @Benchmark
+    public void formatDay(Blackhole blackhole) {
+        for (long time : mTimes) {
+            blackhole.consume(ArticleDates.formatDay(time));
+        }
+    }
+}
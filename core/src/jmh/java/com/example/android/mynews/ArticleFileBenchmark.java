@@ -0,0 +1,72 @@
+package com.example.android.mynews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading a row from a mapped feed of the given length: a random row, which
+ * is almost never in the window and is decoded from the file, and a row in the window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArticleFileBenchmark {
+
+    private static final int RANDOM_ROWS = 4096;
+
+    @Param({"100", "100000"})
+    public int articles;
+
+    private File mFile;
+    private ArticleFile mArticleFile;
+    private int[] mRandomRows;
+    private int mNext;
+
+    @Setup
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("feed", ".articles");
+        mArticleFile = ArticleFile.create(mFile, ArticleFile.DEFAULT_WINDOW);
+        List<Article> page = GuardianPayloads.articles(200);
+        for (int i = 0; i < articles; i++) {
+            mArticleFile.append(page.get(i % page.size()));
+        }
+        // Fixed seed, so every run reads the same rows
+        Random random = new Random(42);
+        mRandomRows = new int[RANDOM_ROWS];
+        for (int i = 0; i < RANDOM_ROWS; i++) {
+            mRandomRows[i] = random.nextInt(articles);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mArticleFile.close();
+        mFile.delete();
+        new File(mFile.getPath() + ".offsets").delete();
+    }
+
+    @Benchmark
+    public Article readRandomRow() {
+        int row = mRandomRows[mNext];
+        mNext = (mNext + 1) % RANDOM_ROWS;
+        return mArticleFile.read(row);
+    }
+
+    @Benchmark
+    public Article readWindowRow() {
+        return mArticleFile.read(articles - 1);
+    }
+}
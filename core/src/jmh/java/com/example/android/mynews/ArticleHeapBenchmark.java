@@ -0,0 +1,112 @@
+package com.example.android.mynews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held by a feed of the given length: articles whose section and author names
+ * are pooled, against the earlier model where every article kept its own copy of
+ * them and of the joined author line. Each field is copied first, the way parsing a
+ * response makes new strings. The time is of building the feed; the bytes it retains
+ * are printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ArticleHeapBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int articles;
+
+    @Param({"pooled", "copied"})
+    public String model;
+
+    private List<Article> mPage;
+    private long mHeapBefore;
+    private List<Object> mFeed;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPage = GuardianPayloads.articles(200);
+    }
+
+    @Setup(Level.Iteration)
+    public void measureBefore() {
+        mFeed = null;
+        mHeapBefore = usedHeap();
+    }
+
+    @TearDown(Level.Iteration)
+    public void measureAfter() {
+        long retained = usedHeap() - mHeapBefore;
+        System.out.println(model + " feed of " + mFeed.size() + " articles retains "
+                + retained + " bytes, " + retained / mFeed.size() + " per article");
+        mFeed = null;
+    }
+
+    @Benchmark
+    public List<Object> buildFeed() {
+        boolean pooled = "pooled".equals(model);
+        List<Object> feed = new ArrayList<>(articles);
+        for (int i = 0; i < articles; i++) {
+            Article article = mPage.get(i % mPage.size());
+            feed.add(pooled ? pooledCopy(article) : new CopiedArticle(article));
+        }
+        mFeed = feed;
+        return feed;
+    }
+
+    private static Article pooledCopy(Article article) {
+        String[] authors = new String[article.getAuthors().length];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = new String(article.getAuthors()[i]);
+        }
+        return new Article(new String(article.getTitle()), authors,
+                new String(article.getSection()), article.getTimeInMillis(),
+                new String(article.getUrl()), copy(article.getThumbnailUrl()));
+    }
+
+    private static String copy(String value) {
+        return value == null ? null : new String(value);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // The article as it was before names were pooled: its own strings throughout
+    private static final class CopiedArticle {
+        final String mTitle;
+        final String mAuthor;
+        final String mSection;
+        final long mTimeInMillis;
+        final String mUrl;
+        final String mThumbnailUrl;
+
+        CopiedArticle(Article article) {
+            mTitle = new String(article.getTitle());
+            mAuthor = copy(article.getAuthorLabel());
+            mSection = new String(article.getSection());
+            mTimeInMillis = article.getTimeInMillis();
+            mUrl = new String(article.getUrl());
+            mThumbnailUrl = copy(article.getThumbnailUrl());
+        }
+    }
+}
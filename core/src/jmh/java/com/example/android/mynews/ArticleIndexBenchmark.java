@@ -0,0 +1,64 @@
+package com.example.android.mynews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local searches and the startup read of an index holding the given number of articles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArticleIndexBenchmark {
+
+    @Param({"200", "2000"})
+    public int articles;
+
+    private ArticleIndex mIndex;
+    private File mFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        mIndex = new ArticleIndex(articles);
+        mFile = File.createTempFile("article-index", ".bin");
+        // Starts from no file, as on a first launch
+        mFile.delete();
+        mIndex.readFrom(mFile);
+        mIndex.addAll(GuardianPayloads.articles(articles));
+        mIndex.writeIfChanged(mFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public List<Article> searchShortPrefix() {
+        return mIndex.search("t", 20);
+    }
+
+    @Benchmark
+    public List<Article> searchTwoWords() {
+        return mIndex.search("the news", 20);
+    }
+
+    @Benchmark
+    public ArticleIndex readAtStartup() {
+        ArticleIndex index = new ArticleIndex(articles);
+        index.readFrom(mFile);
+        return index;
+    }
+}
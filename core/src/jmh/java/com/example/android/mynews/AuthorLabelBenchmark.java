@@ -0,0 +1,41 @@
+package com.example.android.mynews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Joining contributor names into the author line of every row of a page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthorLabelBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private List<Article> mArticles;
+
+    @Setup
+    public void setUp() throws IOException {
+        mArticles = GuardianPayloads.articles(results);
+    }
+
+    @Benchmark
+    public void authorLabels(Blackhole blackhole) {
+        for (Article article : mArticles) {
+            blackhole.consume(article.getAuthorLabel());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.mynews;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming extraction of articles from search responses of different sizes, against
+ * a baseline that parses the whole response into a Gson tree first and then reads
+ * the same fields from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExtractBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private byte[] mPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayload = GuardianPayloads.searchResponse(results);
+    }
+
+    @Benchmark
+    public List<Article> extractFromStream() throws IOException {
+        return QueryUtils.extractFromStream(new ByteArrayInputStream(mPayload), null);
+    }
+
+    @Benchmark
+    public List<Article> extractFromTree() {
+        JsonObject root = new JsonParser().parse(new InputStreamReader(
+                new ByteArrayInputStream(mPayload), UTF_8)).getAsJsonObject();
+        JsonArray results = root.getAsJsonObject("response").getAsJsonArray("results");
+        List<Article> articles = new ArrayList<>(results.size());
+        for (JsonElement element : results) {
+            JsonObject result = element.getAsJsonObject();
+            JsonArray tags = result.getAsJsonArray("tags");
+            String[] authors = new String[tags == null ? 0 : tags.size()];
+            for (int i = 0; i < authors.length; i++) {
+                authors[i] = tags.get(i).getAsJsonObject().get("webTitle").getAsString();
+            }
+            JsonObject fields = result.getAsJsonObject("fields");
+            JsonElement thumbnail = fields == null ? null : fields.get("thumbnail");
+            articles.add(new Article(result.get("webTitle").getAsString(), authors,
+                    result.get("sectionName").getAsString(),
+                    ArticleDates.parseIso8601(result.get("webPublicationDate").getAsString()),
+                    result.get("webUrl").getAsString(),
+                    thumbnail == null ? null : thumbnail.getAsString()));
+        }
+        return articles;
+    }
+}
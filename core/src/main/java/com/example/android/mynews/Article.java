@@ -0,0 +1,102 @@
+package com.example.android.mynews;
+
+import java.util.Comparator;
+
+/**
+ * An {@link Article} object contains
+ * information related to a single article.
+ */
+public class Article {
+    // Orders articles from the most to the least recently published
+    static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            return a.mTimeInMillis < b.mTimeInMillis ? 1
+                    : a.mTimeInMillis == b.mTimeInMillis ? 0 : -1;
+        }
+    };
+
+    // Shared by every article without contributor tags
+    private static final String[] NO_AUTHORS = new String[0];
+    // Shown between contributor names
+    private static final String AUTHOR_SEPARATOR = " | ";
+
+    // Elements grabbed for each article
+    // Section and author names are pooled, so articles that repeat them share one copy
+    private String mTitle;
+    private String[] mAuthors;
+    private String mSection;
+    private long mTimeInMillis;
+    private String mUrl;
+    private String mThumbnailUrl;
+
+    /**
+     * Constructs a new {@link Article} object.
+     *
+     * @param title   is the title of the article
+     * @param authors is the list of contributors to the article, may be empty
+     * @param section is the section the article is found in
+     * @param timeInMillis is when the article was published/edited, in epoch milliseconds
+     * @param url     is the website URL to find more details on article
+     * @param thumbnailUrl is the URL of the article's thumbnail image, may be null
+     */
+    public Article(String title, String[] authors, String section,
+                   long timeInMillis, String url, String thumbnailUrl) {
+        mTitle = title;
+        StringPool pool = StringPool.shared();
+        if (authors == null || authors.length == 0) {
+            mAuthors = NO_AUTHORS;
+        } else {
+            // A copy, so the caller's array is left as it was passed in
+            mAuthors = new String[authors.length];
+            for (int i = 0; i < authors.length; i++) {
+                mAuthors[i] = pool.intern(authors[i]);
+            }
+        }
+        mSection = pool.intern(section);
+        mTimeInMillis = timeInMillis;
+        mUrl = url;
+        mThumbnailUrl = thumbnailUrl;
+    }
+
+    //Public getters used
+    public String getTitle() {
+        return mTitle;
+    }
+
+    String[] getAuthors() {
+        return mAuthors;
+    }
+
+    // Joins the contributors for display, or returns null if there are none
+    String getAuthorLabel() {
+        if (mAuthors.length == 0) {
+            return null;
+        }
+        if (mAuthors.length == 1) {
+            return mAuthors[0];
+        }
+        StringBuilder label = new StringBuilder(mAuthors[0]);
+        for (int i = 1; i < mAuthors.length; i++) {
+            label.append(AUTHOR_SEPARATOR).append(mAuthors[i]);
+        }
+        return label.toString();
+    }
+
+    String getSection() {
+        return mSection;
+    }
+
+    long getTimeInMillis() {
+        return mTimeInMillis;
+    }
+
+    String getUrl() {
+        return mUrl;
+    }
+
+    String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+}
+
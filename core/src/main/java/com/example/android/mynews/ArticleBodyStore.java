@@ -0,0 +1,194 @@
+package com.example.android.mynews;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped article bodies on disk, one file per article URL, so the reader can show an
+ * article without the network. The files are kept under a byte budget; once it is
+ * exceeded, the bodies read or written longest ago are deleted first.
+ */
+final class ArticleBodyStore {
+
+    // LogTag Used For Troubleshooting
+    private static final Logger LOGGER = Logger.getLogger(ArticleBodyStore.class.getSimpleName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    // Bytes of every body file; -1 until the directory has been listed
+    private long mTotalBytes = -1;
+
+    ArticleBodyStore(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the stored body of the article, or null if there is none.
+     */
+    String read(String url) {
+        File file = fileFor(url);
+        InputStream in = null;
+        try {
+            in = new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE);
+            ByteArrayOutputStream body = new ByteArrayOutputStream((int) file.length() * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                body.write(buffer, 0, count);
+            }
+            // Read again, so it is among the last to be evicted
+            file.setLastModified(System.currentTimeMillis());
+            return new String(body.toByteArray(), UTF_8);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Dropping unreadable body of " + url, e);
+            delete(file);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    boolean contains(String url) {
+        return fileFor(url).exists();
+    }
+
+    /**
+     * Stores the article's body, replacing any stored before, then evicts bodies
+     * until the store is back under its budget.
+     */
+    void write(String url, String body) {
+        File file = fileFor(url);
+        File temp = null;
+        OutputStream out = null;
+        try {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IOException("Cannot create " + mDirectory);
+            }
+            // Named apart from any other write of the same body still in progress
+            temp = File.createTempFile(file.getName(), ".tmp", mDirectory);
+            out = new GZIPOutputStream(new FileOutputStream(temp), BUFFER_SIZE);
+            out.write(body.getBytes(UTF_8));
+            out.close();
+            out = null;
+            synchronized (this) {
+                long replaced = file.length();
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Cannot rename " + temp);
+                }
+                if (mTotalBytes >= 0) {
+                    mTotalBytes += file.length() - replaced;
+                }
+                trim();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Problem storing body of " + url, e);
+            if (temp != null) {
+                delete(temp);
+            }
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    synchronized long sizeBytes() {
+        if (mTotalBytes < 0) {
+            mTotalBytes = 0;
+            for (File file : bodyFiles()) {
+                mTotalBytes += file.length();
+            }
+        }
+        return mTotalBytes;
+    }
+
+    // Deletes the bodies used longest ago until the total is within the budget
+    private void trim() {
+        if (sizeBytes() <= mMaxBytes) {
+            return;
+        }
+        File[] files = bodyFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        for (int i = 0; i < files.length && mTotalBytes > mMaxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                mTotalBytes -= length;
+            }
+        }
+    }
+
+    private File[] bodyFiles() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files, count);
+    }
+
+    // A URL may be longer than a file name is allowed to be, so the name is its digest
+    private File fileFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(UTF_8));
+            char[] name = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                name[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                name[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new File(mDirectory, new String(name) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private synchronized void delete(File file) {
+        long length = file.length();
+        if (file.delete() && mTotalBytes >= 0 && file.getName().endsWith(SUFFIX)) {
+            mTotalBytes -= length;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing more can be done with it
+        }
+    }
+}
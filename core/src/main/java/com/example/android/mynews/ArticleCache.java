@@ -0,0 +1,232 @@
+package com.example.android.mynews;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded in-memory cache of parsed {@link Article} lists keyed by canonical request URL.
+ * Entries expire after a fixed time, the least recently used ones are evicted once the
+ * cache holds too many articles, and concurrent requests for the same key share one fetch.
+ */
+final class ArticleCache {
+
+    // LogTag Used For Troubleshooting
+    private static final Logger LOGGER = Logger.getLogger(ArticleCache.class.getSimpleName());
+
+    // How long a parsed result is served without asking the Guardian again
+    private static final long TTL_MILLIS = 5 * 60 * 1000;
+    // Total number of articles kept across all entries
+    private static final int MAX_ARTICLES = 500;
+
+    private static final ArticleCache sInstance = new ArticleCache(TTL_MILLIS, MAX_ARTICLES);
+
+    private final long mTtlMillis;
+    private final int mMaxArticles;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    // Fetches currently running, so a second request for the same key can wait on the first
+    private final Map<String, InFlight> mInFlight = new HashMap<>();
+    private int mSize;
+    private int mHitCount;
+    private int mMissCount;
+
+    private static final class Entry {
+        final List<Article> articles;
+        // Clock.elapsedMillis, so a change of the device clock neither expires nor revives it
+        final long storedAt;
+
+        Entry(List<Article> articles, long storedAt) {
+            this.articles = articles;
+            this.storedAt = storedAt;
+        }
+    }
+
+    // A running fetch and the cancellable of the caller that started it, if any
+    private static final class InFlight {
+        final FutureTask<List<Article>> task;
+        final HttpTransport.Cancellable cancellable;
+
+        InFlight(FutureTask<List<Article>> task, HttpTransport.Cancellable cancellable) {
+            this.task = task;
+            this.cancellable = cancellable;
+        }
+
+        boolean wasCancelled() {
+            return cancellable != null && cancellable.isCancelled();
+        }
+    }
+
+    ArticleCache(long ttlMillis, int maxArticles) {
+        mTtlMillis = ttlMillis;
+        mMaxArticles = maxArticles;
+    }
+
+    static ArticleCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Returns the cached articles for the key if they have not expired, or null.
+     */
+    synchronized List<Article> get(String key) {
+        Entry entry = mEntries.get(key);
+        if (entry != null && Clock.elapsedMillis() - entry.storedAt < mTtlMillis) {
+            mHitCount++;
+            return entry.articles;
+        }
+        if (entry != null) {
+            remove(key);
+        }
+        mMissCount++;
+        return null;
+    }
+
+    /**
+     * Returns the cached articles for the key if they have not expired, or null, without
+     * counting a hit or a miss: for a look at what is there before a load asks for it.
+     */
+    synchronized List<Article> peek(String key) {
+        Entry entry = mEntries.get(key);
+        return entry != null && Clock.elapsedMillis() - entry.storedAt < mTtlMillis
+                ? entry.articles : null;
+    }
+
+    /**
+     * Returns the cached articles for the key, or runs the fetcher on the calling thread
+     * to get them. If another thread is already fetching the same key, this waits for
+     * that fetch instead of starting a second one. Empty and null results are not cached.
+     */
+    List<Article> get(String key, Callable<List<Article>> fetcher) {
+        return get(key, fetcher, null);
+    }
+
+    /**
+     * Same as above, for a fetcher that stops early once the given cancellable (may be
+     * null) is cancelled. A caller waiting on a fetch whose owner was cancelled does not
+     * get its empty result: it runs its own fetcher instead, unless it was cancelled too.
+     */
+    List<Article> get(String key, Callable<List<Article>> fetcher,
+                      HttpTransport.Cancellable cancellable) {
+        while (true) {
+            InFlight flight;
+            boolean isOwner = false;
+            synchronized (this) {
+                List<Article> cached = get(key);
+                if (cached != null) {
+                    return cached;
+                }
+                flight = mInFlight.get(key);
+                if (flight == null) {
+                    flight = new InFlight(new FutureTask<>(fetcher), cancellable);
+                    mInFlight.put(key, flight);
+                    isOwner = true;
+                }
+            }
+
+            if (isOwner) {
+                List<Article> articles = null;
+                try {
+                    flight.task.run();
+                    articles = result(key, flight);
+                } catch (InterruptedException e) {
+                    // Not thrown once the task has run, as it has here
+                    Thread.currentThread().interrupt();
+                } finally {
+                    complete(key, flight, articles);
+                }
+                return articles;
+            }
+
+            List<Article> articles;
+            try {
+                articles = result(key, flight);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (articles != null || !flight.wasCancelled()
+                    || (cancellable != null && cancellable.isCancelled())) {
+                return articles;
+            }
+            // The owner gave up rather than the fetch failing, so take it over
+            finish(key, flight);
+        }
+    }
+
+    /**
+     * Stores the articles for the key, evicting the least recently used entries
+     * until the cache is back under its article budget.
+     */
+    synchronized void put(String key, List<Article> articles) {
+        remove(key);
+        mEntries.put(key, new Entry(articles, Clock.elapsedMillis()));
+        mSize += articles.size();
+
+        Iterator<Map.Entry<String, Entry>> eldest = mEntries.entrySet().iterator();
+        while (mSize > mMaxArticles && eldest.hasNext()) {
+            Map.Entry<String, Entry> next = eldest.next();
+            // Always keep the entry that was just stored, even if it is over budget alone
+            if (next.getKey().equals(key)) {
+                continue;
+            }
+            mSize -= next.getValue().articles.size();
+            eldest.remove();
+        }
+    }
+
+    // The articles the fetch returned, or null if it failed
+    private static List<Article> result(String key, InFlight flight)
+            throws InterruptedException {
+        try {
+            return flight.task.get();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Problem fetching " + key, e.getCause());
+            return null;
+        }
+    }
+
+    // Caches the owner's articles and stops the fetch being in flight in one step, so a
+    // caller arriving in between finds either the fetch to wait on or its result
+    private synchronized void complete(String key, InFlight flight, List<Article> articles) {
+        if (articles != null && !articles.isEmpty()) {
+            put(key, articles);
+        }
+        finish(key, flight);
+    }
+
+    // Stops later callers waiting on the fetch, unless a newer one has replaced it
+    private synchronized void finish(String key, InFlight flight) {
+        if (mInFlight.get(key) == flight) {
+            mInFlight.remove(key);
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = mEntries.remove(key);
+        if (removed != null) {
+            mSize -= removed.articles.size();
+        }
+    }
+
+    synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    synchronized int missCount() {
+        return mMissCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ArticleCache[entries=" + mEntries.size() + ", articles=" + mSize
+                + ", hits=" + mHitCount + ", misses=" + mMissCount + "]";
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.android.mynews;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the Guardian's ISO-8601 timestamps into epoch milliseconds
+ * and turns those back into the date strings shown in the list.
+ */
+final class ArticleDates {
+
+    // Returned when a timestamp is missing or cannot be parsed
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final String DISPLAY_PATTERN = "MMM d, yyyy";
+    private static final int MAX_DAY_LABELS = 64;
+
+    // Display strings by local calendar day, least recently used first; guarded by the class
+    private static final Map<Long, String> sDayLabels =
+            new LinkedHashMap<Long, String>(MAX_DAY_LABELS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > MAX_DAY_LABELS;
+                }
+            };
+    private static SimpleDateFormat sDisplayFormat;
+
+    // Create a private constructor
+    private ArticleDates() {
+    }
+
+    /**
+     * Parses "yyyy-MM-ddTHH:mm:ss" followed by optional fractional seconds and either
+     * "Z" or a "+hh:mm" offset. Reads the digits in place, so it is safe to call from
+     * any thread and does not allocate. Returns {@link #NO_TIME} if the text does not match.
+     */
+    static long parseIso8601(String text) {
+        if (text == null || text.length() < 19
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return NO_TIME;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return NO_TIME;
+        }
+
+        int index = 19;
+        int millis = 0;
+        if (index < text.length() && text.charAt(index) == '.') {
+            index++;
+            int scale = 100;
+            while (index < text.length() && Character.isDigit(text.charAt(index))) {
+                millis += (text.charAt(index) - '0') * scale;
+                scale /= 10;
+                index++;
+            }
+        }
+
+        int offsetMinutes = 0;
+        if (index < text.length()) {
+            char zone = text.charAt(index);
+            if ((zone == '+' || zone == '-') && text.length() >= index + 6) {
+                int offsetHours = digits(text, index + 1, 2);
+                int offsetMins = digits(text, index + 4, 2);
+                if (offsetHours < 0 || offsetMins < 0) {
+                    return NO_TIME;
+                }
+                offsetMinutes = offsetHours * 60 + offsetMins;
+                if (zone == '-') {
+                    offsetMinutes = -offsetMinutes;
+                }
+            } else if (zone != 'Z') {
+                return NO_TIME;
+            }
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86400L
+                + hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+        return seconds * 1000L + millis;
+    }
+
+    /**
+     * Returns the date shown for a publication time, e.g. "Feb 3, 2018". Safe to call
+     * from any thread: the label cache and the formatter are used one thread at a time.
+     */
+    static synchronized String formatDay(long timeInMillis) {
+        if (timeInMillis == NO_TIME) {
+            return "";
+        }
+        // Every article published on the same local day shares one label
+        long localTime = timeInMillis + TimeZone.getDefault().getOffset(timeInMillis);
+        long localDay = localTime / DAY_MILLIS;
+        if (localTime % DAY_MILLIS < 0) {
+            localDay--;
+        }
+        String label = sDayLabels.get(localDay);
+        if (label == null) {
+            if (sDisplayFormat == null) {
+                sDisplayFormat = new SimpleDateFormat(DISPLAY_PATTERN, Locale.US);
+            }
+            label = sDisplayFormat.format(new Date(timeInMillis));
+            sDayLabels.put(localDay, label);
+        }
+        return label;
+    }
+
+    // Reads count decimal digits starting at offset, or returns -1 if any is not a digit
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Days since 1970-01-01 for a proleptic Gregorian date (Howard Hinnant's algorithm)
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.android.mynews;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only store of {@link Article} records in a memory-mapped file, so a feed of any
+ * length costs the heap only the few articles around the rows being shown. Each record
+ * is numbered in the order it was appended and decoded again on demand; the most
+ * recently used decoded articles are kept in a small window. An article already stored
+ * unchanged is not appended again, and clearing the store starts over at the beginning
+ * of the file, so the file only grows with the articles of the current feed.
+ * <p>
+ * Records are laid out as the title, the number of contributors and each of their
+ * names, the section, the publication time, the URL and the thumbnail URL. Strings are
+ * their UTF-8 length, or -1 for null, followed by their bytes. A second mapped file
+ * holds the offset of each record.
+ */
+final class ArticleFile implements Closeable {
+
+    // LogTag Used For Troubleshooting
+    private static final Logger LOGGER = Logger.getLogger(ArticleFile.class.getSimpleName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int NULL_LENGTH = -1;
+    private static final int OFFSET_BYTES = 4;
+    // Starting sizes of the two files; each doubles when it fills up
+    private static final int INITIAL_DATA_BYTES = 256 * 1024;
+    private static final int INITIAL_OFFSET_BYTES = 4096 * OFFSET_BYTES;
+    // Decoded articles kept: a few screens of rows
+    static final int DEFAULT_WINDOW = 64;
+    // Slots of the URL table; many times a feed, so URLs rarely share one
+    private static final int URL_SLOTS = 4096;
+
+    // Null once the store lives in direct buffers instead of the files
+    private RandomAccessFile mDataFile;
+    private RandomAccessFile mOffsetFile;
+    private ByteBuffer mData;
+    private ByteBuffer mOffsets;
+    // Positioned for each decode, so the buffers themselves are only written
+    private ByteBuffer mReader;
+    private int mDataSize;
+    private int mCount;
+    private byte[] mScratch = new byte[256];
+    private final LinkedHashMap<Integer, Article> mWindow;
+    // One plus the newest record of a URL, in the slot its hash picks; 0 for none. Two
+    // URLs sharing a slot only cost an article stored twice, and it costs no heap per row
+    private final int[] mRecordsByUrl = new int[URL_SLOTS];
+    // Bumped by clear, after which the records numbered before are gone
+    private int mEpoch;
+
+    private ArticleFile(RandomAccessFile dataFile, RandomAccessFile offsetFile,
+                        final int windowSize) {
+        mDataFile = dataFile;
+        mOffsetFile = offsetFile;
+        mData = grow(null, INITIAL_DATA_BYTES, true);
+        mOffsets = grow(null, INITIAL_OFFSET_BYTES, false);
+        mReader = mData.duplicate();
+        // Access-ordered, so the eldest entry is the one shown longest ago
+        mWindow = new LinkedHashMap<Integer, Article>(windowSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Article> eldest) {
+                return size() > windowSize;
+            }
+        };
+    }
+
+    /**
+     * Creates an empty store in the given file, replacing what it held, plus a file
+     * next to it for the record offsets.
+     */
+    static ArticleFile create(File file, int windowSize) throws IOException {
+        RandomAccessFile dataFile = new RandomAccessFile(file, "rw");
+        RandomAccessFile offsetFile = null;
+        try {
+            offsetFile = new RandomAccessFile(new File(file.getPath() + ".offsets"), "rw");
+            dataFile.setLength(0);
+            offsetFile.setLength(0);
+            return new ArticleFile(dataFile, offsetFile, windowSize);
+        } catch (IOException e) {
+            dataFile.close();
+            if (offsetFile != null) {
+                offsetFile.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty store in direct buffers, off the heap but not backed by a file.
+     */
+    static ArticleFile inMemory(int windowSize) {
+        return new ArticleFile(null, null, windowSize);
+    }
+
+    /**
+     * Returns the record number of the article, appending it unless the newest record
+     * with its URL already holds it unchanged.
+     */
+    synchronized int intern(Article article) {
+        if (article.getUrl() != null) {
+            int record = mRecordsByUrl[slotOf(article.getUrl())] - 1;
+            if (record >= 0 && sameFields(article, decode(record))) {
+                return record;
+            }
+        }
+        return append(article);
+    }
+
+    /**
+     * Appends the article and returns its record number.
+     */
+    synchronized int append(Article article) {
+        byte[] title = encode(article.getTitle());
+        String[] authors = article.getAuthors();
+        byte[][] authorBytes = new byte[authors.length][];
+        int size = stringSize(title) + 4;
+        for (int i = 0; i < authors.length; i++) {
+            authorBytes[i] = encode(authors[i]);
+            size += stringSize(authorBytes[i]);
+        }
+        byte[] section = encode(article.getSection());
+        byte[] url = encode(article.getUrl());
+        byte[] thumbnailUrl = encode(article.getThumbnailUrl());
+        size += stringSize(section) + 8 + stringSize(url) + stringSize(thumbnailUrl);
+
+        if ((long) mDataSize + size > mData.capacity()) {
+            mData = grow(mData, (long) mDataSize + size, true);
+            mReader = mData.duplicate();
+        }
+        if ((mCount + 1L) * OFFSET_BYTES > mOffsets.capacity()) {
+            mOffsets = grow(mOffsets, (mCount + 1L) * OFFSET_BYTES, false);
+        }
+
+        ByteBuffer out = mData.duplicate();
+        out.position(mDataSize);
+        putString(out, title);
+        out.putInt(authors.length);
+        for (byte[] author : authorBytes) {
+            putString(out, author);
+        }
+        putString(out, section);
+        out.putLong(article.getTimeInMillis());
+        putString(out, url);
+        putString(out, thumbnailUrl);
+
+        int record = mCount++;
+        mOffsets.putInt(record * OFFSET_BYTES, mDataSize);
+        mDataSize = out.position();
+        if (article.getUrl() != null) {
+            mRecordsByUrl[slotOf(article.getUrl())] = record + 1;
+        }
+        // Appended rows are usually about to be shown, so keep them decoded
+        mWindow.put(record, article);
+        return record;
+    }
+
+    /**
+     * Returns the article with the given record number, decoding it if it has left
+     * the window.
+     */
+    synchronized Article read(int record) {
+        Article article = mWindow.get(record);
+        if (article == null) {
+            article = decode(record);
+            mWindow.put(record, article);
+        }
+        return article;
+    }
+
+    /**
+     * Same as {@link #read(int)}, but only while the store has not been cleared since
+     * the given epoch.
+     *
+     * @throws IllegalStateException if it has, since the record is gone
+     */
+    synchronized Article read(int epoch, int record) {
+        checkEpoch(epoch);
+        return read(record);
+    }
+
+    /**
+     * Decodes the article without adding it to the window, for a pass over many rows
+     * such as a diff that would otherwise push out the rows on screen.
+     */
+    synchronized Article peek(int epoch, int record) {
+        checkEpoch(epoch);
+        Article article = mWindow.get(record);
+        return article != null ? article : decode(record);
+    }
+
+    synchronized int epoch() {
+        return mEpoch;
+    }
+
+    /**
+     * Removes every record, reusing the file from the start. Lists of the earlier
+     * records can no longer be read.
+     */
+    synchronized void clear() {
+        mEpoch++;
+        mCount = 0;
+        mDataSize = 0;
+        mWindow.clear();
+        Arrays.fill(mRecordsByUrl, 0);
+    }
+
+    synchronized void checkEpoch(int epoch) {
+        if (epoch != mEpoch) {
+            throw new IllegalStateException("Records of a cleared article file");
+        }
+    }
+
+    private Article decode(int record) {
+        if (record < 0 || record >= mCount) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + mCount);
+        }
+        ByteBuffer in = mReader;
+        in.position(mOffsets.getInt(record * OFFSET_BYTES));
+        String title = getString(in);
+        String[] authors = new String[in.getInt()];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = getString(in);
+        }
+        String section = getString(in);
+        long timeInMillis = in.getLong();
+        String url = getString(in);
+        String thumbnailUrl = getString(in);
+        return new Article(title, authors, section, timeInMillis, url, thumbnailUrl);
+    }
+
+    synchronized int size() {
+        return mCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mWindow.clear();
+        try {
+            if (mDataFile != null) {
+                mDataFile.close();
+            }
+        } finally {
+            if (mOffsetFile != null) {
+                mOffsetFile.close();
+            }
+        }
+    }
+
+    // Maps a bigger region of the file, or moves to a direct buffer if that fails
+    private ByteBuffer grow(ByteBuffer buffer, long needed, boolean isData) {
+        if (needed > Integer.MAX_VALUE) {
+            // A buffer cannot be larger, and no feed comes near it
+            throw new IllegalStateException("Article file full at " + mCount + " records");
+        }
+        long capacity = buffer == null ? needed : buffer.capacity();
+        while (capacity < needed) {
+            capacity = Math.min(capacity * 2, Integer.MAX_VALUE);
+        }
+        RandomAccessFile file = isData ? mDataFile : mOffsetFile;
+        if (file != null) {
+            try {
+                // The mapping still covers what was written, so nothing is copied
+                return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Keeping articles in memory instead of the file", e);
+                if (isData) {
+                    mDataFile = null;
+                } else {
+                    mOffsetFile = null;
+                }
+            }
+        }
+        ByteBuffer bigger = ByteBuffer.allocateDirect((int) capacity);
+        if (buffer != null) {
+            ByteBuffer written = buffer.duplicate();
+            written.clear();
+            bigger.put(written);
+            bigger.clear();
+        }
+        return bigger;
+    }
+
+    private static int slotOf(String url) {
+        return (url.hashCode() & 0x7fffffff) % URL_SLOTS;
+    }
+
+    // Whether the article would be stored as the same record
+    private static boolean sameFields(Article a, Article b) {
+        return equal(a.getTitle(), b.getTitle())
+                && Arrays.equals(a.getAuthors(), b.getAuthors())
+                && equal(a.getSection(), b.getSection())
+                && a.getTimeInMillis() == b.getTimeInMillis()
+                && equal(a.getUrl(), b.getUrl())
+                && equal(a.getThumbnailUrl(), b.getThumbnailUrl());
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(UTF_8);
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putInt(NULL_LENGTH);
+        } else {
+            out.putInt(bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    private String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length > mScratch.length) {
+            mScratch = new byte[Math.max(length, mScratch.length * 2)];
+        }
+        in.get(mScratch, 0, length);
+        return new String(mScratch, 0, length, UTF_8);
+    }
+}
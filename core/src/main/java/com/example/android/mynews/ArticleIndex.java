@@ -0,0 +1,368 @@
+package com.example.android.mynews;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory inverted index over the titles, contributors and sections of every
+ * {@link Article} fetched so far, so a search can be answered on the device before
+ * the Guardian replies, or without a network at all. Every word of a query matches
+ * as a prefix, results are newest first, and once the index is full the articles
+ * that were seen longest ago are dropped. The index is kept in a compact file
+ * that is read back at startup.
+ */
+final class ArticleIndex {
+
+    // LogTag Used For Troubleshooting
+    private static final Logger LOGGER = Logger.getLogger(ArticleIndex.class.getSimpleName());
+
+    // Number of distinct articles indexed, by URL
+    private static final int MAX_ARTICLES = 2000;
+
+    // Marks the start of an index file, followed by its format version
+    private static final int FILE_MAGIC = 0x4d4e4958;
+    private static final int FILE_VERSION = 1;
+
+    private static final ArticleIndex sInstance = new ArticleIndex(MAX_ARTICLES);
+
+    private final int mMaxArticles;
+    // Insertion-ordered, so iteration starts at the article seen longest ago
+    private final LinkedHashMap<String, Document> mDocuments = new LinkedHashMap<>();
+    // Sorted, so all the words starting with a prefix are one sub-map
+    private final TreeMap<String, List<Document>> mPostings = new TreeMap<>();
+    // Set when articles were added since the index was last written to its file
+    private boolean mChanged;
+    // Set once the file has been read, so writing it cannot lose what it held
+    private boolean mRead;
+    // Held while the file is written, so two writes never interleave
+    private final Object mWriteLock = new Object();
+
+    /**
+     * An indexed article with the distinct words it was indexed under.
+     */
+    private static final class Document {
+        final Article article;
+        final String[] words;
+
+        Document(Article article, String[] words) {
+            this.article = article;
+            this.words = words;
+        }
+    }
+
+    ArticleIndex(int maxArticles) {
+        mMaxArticles = maxArticles;
+    }
+
+    static ArticleIndex getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Indexes the articles, replacing any indexed before under the same URL, and drops
+     * the articles seen longest ago until the index is back under its size.
+     */
+    synchronized void addAll(List<Article> articles) {
+        for (Article article : articles) {
+            if (article.getUrl() != null) {
+                add(article);
+            }
+        }
+        trim();
+        mChanged = true;
+    }
+
+    private void trim() {
+        Iterator<Document> eldest = mDocuments.values().iterator();
+        while (mDocuments.size() > mMaxArticles && eldest.hasNext()) {
+            Document document = eldest.next();
+            eldest.remove();
+            removePostings(document);
+        }
+    }
+
+    private void add(Article article) {
+        // Seen again, so it moves to the newest end
+        Document previous = mDocuments.remove(article.getUrl());
+        if (previous != null) {
+            removePostings(previous);
+        }
+        Document document = new Document(article, wordsOf(article));
+        mDocuments.put(article.getUrl(), document);
+        for (String word : document.words) {
+            List<Document> postings = mPostings.get(word);
+            if (postings == null) {
+                postings = new ArrayList<>(2);
+                mPostings.put(word, postings);
+            }
+            postings.add(document);
+        }
+    }
+
+    private void removePostings(Document document) {
+        for (String word : document.words) {
+            List<Document> postings = mPostings.get(word);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = postings.size() - 1; i >= 0; i--) {
+                if (postings.get(i) == document) {
+                    postings.remove(i);
+                    break;
+                }
+            }
+            if (postings.isEmpty()) {
+                mPostings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Returns up to limit indexed articles, newest first, that have a word starting
+     * with each word of the query, or an empty list if nothing matches.
+     */
+    synchronized List<Article> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Document> matches = null;
+        for (String prefix : queryWords) {
+            Set<Document> prefixMatches = Collections.newSetFromMap(
+                    new IdentityHashMap<Document, Boolean>());
+            // Every word from the prefix up to the next possible prefix
+            SortedMap<String, List<Document>> range =
+                    mPostings.subMap(prefix, prefix + Character.MAX_VALUE);
+            for (List<Document> postings : range.values()) {
+                if (matches == null) {
+                    prefixMatches.addAll(postings);
+                } else {
+                    for (Document document : postings) {
+                        if (matches.contains(document)) {
+                            prefixMatches.add(document);
+                        }
+                    }
+                }
+            }
+            matches = prefixMatches;
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<Article> articles = new ArrayList<>(matches.size());
+        for (Document document : matches) {
+            articles.add(document.article);
+        }
+        Collections.sort(articles, Article.NEWEST_FIRST);
+        return articles.size() > limit ? new ArrayList<>(articles.subList(0, limit)) : articles;
+    }
+
+    synchronized int size() {
+        return mDocuments.size();
+    }
+
+    /**
+     * Adds the articles kept in the file to the index, oldest first, so those
+     * indexed since startup stay the newest. A missing file is an empty index.
+     */
+    void readFrom(File file) {
+        List<Article> articles = new ArrayList<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            // A file of another version is dropped and refilled as articles are fetched
+            if (in.readInt() == FILE_MAGIC && in.readInt() == FILE_VERSION) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    articles.add(readArticle(in));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing has been indexed on this device yet
+        } catch (IOException e) {
+            // Start over rather than keep a partly read index
+            LOGGER.log(Level.WARNING, "Problem reading " + file, e);
+            articles.clear();
+        } finally {
+            closeQuietly(in);
+        }
+
+        // Parsed outside the lock, so searches are not held up by the disk
+        synchronized (this) {
+            List<Document> sinceStartup = new ArrayList<>(mDocuments.values());
+            mDocuments.clear();
+            mPostings.clear();
+            for (Article article : articles) {
+                add(article);
+            }
+            for (Document document : sinceStartup) {
+                add(document.article);
+            }
+            trim();
+            mRead = true;
+        }
+    }
+
+    /**
+     * Writes the index to the file if articles were added since it was last written.
+     * Nothing is written until the file has been read. The file is replaced in one
+     * step, so a crash midway leaves the previous one, and writes from different
+     * threads, such as the activity stopping during a background sync, take turns.
+     */
+    void writeIfChanged(File file) {
+        synchronized (mWriteLock) {
+            write(file);
+        }
+    }
+
+    private void write(File file) {
+        List<Article> articles;
+        synchronized (this) {
+            if (!mRead || !mChanged) {
+                return;
+            }
+            mChanged = false;
+            articles = new ArrayList<>(mDocuments.size());
+            for (Document document : mDocuments.values()) {
+                articles.add(document.article);
+            }
+        }
+
+        File temp = null;
+        DataOutputStream out = null;
+        try {
+            temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(articles.size());
+            for (Article article : articles) {
+                writeArticle(out, article);
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot rename " + temp);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Problem writing " + file, e);
+            synchronized (this) {
+                mChanged = true;
+            }
+        } finally {
+            closeQuietly(out);
+            if (temp != null && temp.exists() && !temp.delete()) {
+                LOGGER.warning("Cannot delete " + temp);
+            }
+        }
+    }
+
+    private static void writeArticle(DataOutputStream out, Article article) throws IOException {
+        writeString(out, article.getTitle());
+        String[] authors = article.getAuthors();
+        out.writeShort(authors.length);
+        for (String author : authors) {
+            out.writeUTF(author);
+        }
+        writeString(out, article.getSection());
+        out.writeLong(article.getTimeInMillis());
+        out.writeUTF(article.getUrl());
+        writeString(out, article.getThumbnailUrl());
+    }
+
+    private static Article readArticle(DataInputStream in) throws IOException {
+        String title = readString(in);
+        String[] authors = new String[in.readShort()];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = in.readUTF();
+        }
+        String section = readString(in);
+        long timeInMillis = in.readLong();
+        String url = in.readUTF();
+        String thumbnailUrl = readString(in);
+        return new Article(title, authors, section, timeInMillis, url, thumbnailUrl);
+    }
+
+    // Nullable strings are written behind a flag
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing more can be done with it
+        }
+    }
+
+    // The distinct words of everything an article can be searched by
+    private static String[] wordsOf(Article article) {
+        Set<String> words = new LinkedHashSet<>(tokenize(article.getTitle()));
+        for (String author : article.getAuthors()) {
+            words.addAll(tokenize(author));
+        }
+        words.addAll(tokenize(article.getSection()));
+        return words.toArray(new String[words.size()]);
+    }
+
+    /**
+     * Splits text into lower-case runs of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ArticleIndex[articles=" + mDocuments.size() + ", words=" + mPostings.size() + "]";
+    }
+}
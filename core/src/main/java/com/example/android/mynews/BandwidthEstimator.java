@@ -0,0 +1,101 @@
+package com.example.android.mynews;
+
+import java.util.Locale;
+
+/**
+ * Estimates how fast the current network delivers Guardian responses, from the
+ * throughput and time to first byte of the requests the app actually makes.
+ * Both are smoothed so one slow response does not flip the estimate. Until enough
+ * responses have been measured, a hint from the kind of network is used instead.
+ */
+final class BandwidthEstimator {
+
+    /**
+     * How rich a feed the network can carry, from worst to best.
+     */
+    enum Quality {
+        POOR, MODERATE, GOOD, EXCELLENT
+    }
+
+    // Smaller responses are mostly round trips and say little about bandwidth. Low enough
+    // that a gzipped LEAN page still counts, or a slow link once left could never show it
+    private static final long MIN_SAMPLE_BYTES = 1024;
+    // Measured responses needed before the estimate replaces the hint
+    private static final int MIN_SAMPLES = 3;
+    // Weight of the newest sample in the smoothed values
+    private static final double SMOOTHING = 0.25;
+
+    // Lowest throughput of MODERATE, GOOD and EXCELLENT, in kilobits per second
+    private static final double[] KBPS_THRESHOLDS = {150, 550, 2000};
+    // Highest time to first byte of MODERATE, GOOD and EXCELLENT; includes the API's own time
+    private static final double[] FIRST_BYTE_THRESHOLDS = {2500, 1200, 600};
+
+    private static final BandwidthEstimator sInstance = new BandwidthEstimator();
+
+    private double mKbps;
+    private double mFirstByteMillis;
+    private int mSamples;
+    private Quality mHint;
+
+    static BandwidthEstimator getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Adds a finished response. Throughput is taken over the time from the first byte
+     * to the end of the body, which includes parsing, so a slow device reads as a
+     * slower network; smaller pages suit it better too.
+     */
+    synchronized void record(HttpTransport.Timings timings) {
+        if (timings.wireBytes < MIN_SAMPLE_BYTES || timings.transferMillis <= 0) {
+            return;
+        }
+        double kbps = timings.wireBytes * 8.0 / timings.transferMillis;
+        if (mSamples == 0) {
+            mKbps = kbps;
+            mFirstByteMillis = timings.firstByteMillis;
+        } else {
+            mKbps += SMOOTHING * (kbps - mKbps);
+            mFirstByteMillis += SMOOTHING * (timings.firstByteMillis - mFirstByteMillis);
+        }
+        mSamples++;
+    }
+
+    /**
+     * Forgets what was measured, e.g. after the device moved to another network,
+     * and falls back on the given hint (may be null) until new responses are measured.
+     */
+    synchronized void reset(Quality hint) {
+        mSamples = 0;
+        mKbps = 0;
+        mFirstByteMillis = 0;
+        mHint = hint;
+    }
+
+    /**
+     * Returns the estimated quality, or the hint (which may be null) until enough
+     * responses have been measured. The lower of the bandwidth and latency verdicts wins.
+     */
+    synchronized Quality quality() {
+        if (mSamples < MIN_SAMPLES) {
+            return mHint;
+        }
+        int bandwidthLevel = 0;
+        while (bandwidthLevel < KBPS_THRESHOLDS.length
+                && mKbps >= KBPS_THRESHOLDS[bandwidthLevel]) {
+            bandwidthLevel++;
+        }
+        int latencyLevel = 0;
+        while (latencyLevel < FIRST_BYTE_THRESHOLDS.length
+                && mFirstByteMillis <= FIRST_BYTE_THRESHOLDS[latencyLevel]) {
+            latencyLevel++;
+        }
+        return Quality.values()[Math.min(bandwidthLevel, latencyLevel)];
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "network: %s, %.0f kbps, %.0f ms to first byte "
+                + "over %d responses", quality(), mKbps, mFirstByteMillis, mSamples);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.android.mynews;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stops sending requests to a host that keeps failing. After a run of failed requests
+ * the circuit opens and requests are refused at once, so callers fall back to what they
+ * have stored instead of waiting on timeouts. Once the open period has passed a single
+ * trial request is let through, and its outcome closes or reopens the circuit.
+ */
+final class CircuitBreaker {
+
+    // Consecutive failed requests that open the circuit
+    private static final int FAILURE_THRESHOLD = 5;
+    // How long an open circuit refuses requests before letting a trial through
+    private static final long OPEN_MILLIS = 30 * 1000;
+
+    // Keys the breakers of background requests apart from the host's own
+    private static final String BACKGROUND_PREFIX = "background ";
+
+    private static final Map<String, CircuitBreaker> sBreakers = new HashMap<>();
+
+    private int mFailures;
+    // Until when requests are refused; 0 while the circuit is closed
+    private long mOpenUntil;
+    private boolean mTrialInFlight;
+
+    /**
+     * Returns the breaker shared by every request to the given host and port.
+     */
+    static synchronized CircuitBreaker forAuthority(String authority) {
+        CircuitBreaker breaker = sBreakers.get(authority);
+        if (breaker == null) {
+            breaker = new CircuitBreaker();
+            sBreakers.put(authority, breaker);
+        }
+        return breaker;
+    }
+
+    /**
+     * Returns the breaker shared by background requests to the given host and port,
+     * which opens and closes without affecting the breaker of its interactive requests.
+     */
+    static CircuitBreaker forBackground(String authority) {
+        return forAuthority(BACKGROUND_PREFIX + authority);
+    }
+
+    /**
+     * Returns whether a request may be sent now. Every allowed request must be
+     * followed by onSuccess or onFailure.
+     */
+    synchronized boolean allowRequest() {
+        if (mOpenUntil == 0) {
+            return true;
+        }
+        if (Clock.elapsedMillis() < mOpenUntil || mTrialInFlight) {
+            return false;
+        }
+        // Half-open: one request finds out whether the host has recovered
+        mTrialInFlight = true;
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        mFailures = 0;
+        mOpenUntil = 0;
+        mTrialInFlight = false;
+    }
+
+    // A cancelled request says nothing about the host, but frees the trial slot
+    synchronized void onAbandoned() {
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Records a failed request.
+     *
+     * @param retryAfterMillis how long the host asked to be left alone, or 0
+     */
+    synchronized void onFailure(long retryAfterMillis) {
+        mFailures++;
+        long openMillis = 0;
+        if (mTrialInFlight || mFailures >= FAILURE_THRESHOLD) {
+            openMillis = OPEN_MILLIS;
+        }
+        // A host that says when to come back is taken at its word
+        openMillis = Math.max(openMillis, retryAfterMillis);
+        mTrialInFlight = false;
+        if (openMillis > 0) {
+            mOpenUntil = Clock.elapsedMillis() + openMillis;
+        }
+    }
+
+    /**
+     * Closes the circuit and forgets past failures, e.g. before a measured run.
+     */
+    synchronized void reset() {
+        mFailures = 0;
+        mOpenUntil = 0;
+        mTrialInFlight = false;
+    }
+
+    synchronized boolean isOpen() {
+        return mOpenUntil != 0 && Clock.elapsedMillis() < mOpenUntil;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.android.mynews;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monotonic milliseconds for timing requests, which unlike wall-clock time
+ * never jump when the user or the network changes the device's clock.
+ */
+final class Clock {
+
+    // Create a private constructor
+    private Clock() {
+    }
+
+    static long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.android.mynews;
+
+/**
+ * How much to ask of the network for the feed: the smallest usable feed on a slow
+ * link, and a richer one that looks further ahead on a fast link.
+ */
+enum FetchProfile {
+
+    // Short pages of bare results: no contributor tags, thumbnails or article bodies
+    LEAN(10, false, false, 10, false),
+    // The feed as it has always been, with the bodies of rows near the screen prefetched
+    STANDARD(20, true, true, 60, true),
+    // Long pages, and prefetching far enough ahead for fast flinging
+    RICH(50, true, true, 150, true);
+
+    // Results asked for per page
+    final int pageSize;
+    // Whether contributor tags, which hold the author names, are asked for
+    final boolean expandTags;
+    // Whether thumbnail URLs are asked for and thumbnails downloaded
+    final boolean thumbnails;
+    // Most rows ahead of the visible ones the next page is fetched at
+    final int maxPrefetchRows;
+    // Whether the bodies of rows near the screen are fetched for the reader ahead of a tap
+    final boolean prefetchBodies;
+
+    FetchProfile(int pageSize, boolean expandTags, boolean thumbnails, int maxPrefetchRows,
+                 boolean prefetchBodies) {
+        this.pageSize = pageSize;
+        this.expandTags = expandTags;
+        this.thumbnails = thumbnails;
+        this.maxPrefetchRows = maxPrefetchRows;
+        this.prefetchBodies = prefetchBodies;
+    }
+
+    /**
+     * Returns the profile for a network of the given quality; STANDARD when unknown.
+     */
+    static FetchProfile forQuality(BandwidthEstimator.Quality quality) {
+        if (quality == null) {
+            return STANDARD;
+        }
+        switch (quality) {
+            case POOR:
+                return LEAN;
+            case MODERATE:
+                return STANDARD;
+            default:
+                return RICH;
+        }
+    }
+}
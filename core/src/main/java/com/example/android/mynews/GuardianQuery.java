@@ -0,0 +1,218 @@
+package com.example.android.mynews;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A Guardian search built from typed parts instead of a hand-assembled URL. Search
+ * terms are trimmed, collapsed to single spaces and lower-cased, and parameters are
+ * written in name order, so searches that differ only in spacing, case or the order
+ * they were put together in make the same URL and the same {@link #cacheKey}. Only
+ * the fields {@link QueryUtils} reads can be asked for.
+ */
+final class GuardianQuery {
+
+    private static final String SEARCH_URL = "http://content.guardianapis.com/search";
+    // An article's content lives at the same path as its web page
+    private static final String CONTENT_URL = "http://content.guardianapis.com";
+    private static final String UTF_8 = "UTF-8";
+
+    private static final String API_KEY = "api-key";
+    private static final String TERMS = "q";
+    private static final String SECTION = "section";
+    private static final String PAGE = "page";
+    // Guardian search operators, which only work in capitals
+    private static final String[] OPERATORS = {"AND", "OR", "NOT"};
+
+    // Sorted by name, so equal queries are written the same way
+    private final TreeMap<String, String> mParameters;
+
+    private GuardianQuery(TreeMap<String, String> parameters) {
+        mParameters = parameters;
+    }
+
+    /**
+     * Builds a {@link GuardianQuery}. Every query asks for JSON; the rest is optional.
+     */
+    static final class Builder {
+        private final TreeMap<String, String> mParameters = new TreeMap<>();
+
+        Builder() {
+            mParameters.put("format", "json");
+        }
+
+        Builder terms(String terms) {
+            mParameters.put(TERMS, normalize(TERMS, terms));
+            return this;
+        }
+
+        Builder section(String section) {
+            mParameters.put(SECTION, normalize(SECTION, section));
+            return this;
+        }
+
+        Builder pageSize(int pageSize) {
+            mParameters.put("page-size", String.valueOf(pageSize));
+            return this;
+        }
+
+        Builder newestFirst() {
+            mParameters.put("order-by", "newest");
+            return this;
+        }
+
+        // Contributor tags, whose titles are the author names
+        Builder contributors() {
+            mParameters.put("show-tags", "contributor");
+            return this;
+        }
+
+        Builder thumbnails() {
+            mParameters.put("show-fields", "thumbnail");
+            return this;
+        }
+
+        GuardianQuery build() {
+            return new GuardianQuery(new TreeMap<>(mParameters));
+        }
+    }
+
+    /**
+     * Returns the request URL without the API key, the same for every equivalent query.
+     */
+    String cacheKey() {
+        return SEARCH_URL + "?" + encode(mParameters);
+    }
+
+    /**
+     * Returns the request URL, signed with the API key.
+     */
+    String toUrl(String apiKey) {
+        return cacheKey() + "&" + API_KEY + "=" + encode(apiKey);
+    }
+
+    @Override
+    public String toString() {
+        return cacheKey();
+    }
+
+    /**
+     * Returns the cache key for any Guardian request URL, including ones with a page
+     * added or built elsewhere: the API key is left out, search terms and sections are
+     * normalized and the parameters are sorted by name.
+     */
+    static String keyFor(String requestUrl) {
+        int start = requestUrl.indexOf('?');
+        if (start < 0) {
+            return requestUrl;
+        }
+        TreeMap<String, String> parameters = new TreeMap<>();
+        for (String parameter : requestUrl.substring(start + 1).split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals <= 0) {
+                continue;
+            }
+            String name = decode(parameter.substring(0, equals));
+            if (!API_KEY.equals(name)) {
+                parameters.put(name, normalize(name, decode(parameter.substring(equals + 1))));
+            }
+        }
+        return requestUrl.substring(0, start) + "?" + encode(parameters);
+    }
+
+    /**
+     * Returns the request URL asking for the given page of its results instead of the
+     * one it asked for before. Pages are numbered from 1; every other parameter,
+     * including the API key, is kept as it was.
+     */
+    static String pageUrl(String requestUrl, int page) {
+        int start = requestUrl.indexOf('?');
+        StringBuilder url = new StringBuilder(requestUrl.length() + 8)
+                .append(start < 0 ? requestUrl : requestUrl.substring(0, start)).append('?');
+        if (start >= 0) {
+            for (String parameter : requestUrl.substring(start + 1).split("&")) {
+                if (!parameter.isEmpty() && !parameter.startsWith(PAGE + "=")) {
+                    url.append(parameter).append('&');
+                }
+            }
+        }
+        return url.append(PAGE).append('=').append(page).toString();
+    }
+
+    /**
+     * Returns the content request for the body text of the article with the given
+     * web URL, or null if it is not a URL.
+     */
+    static String bodyUrl(String webUrl, String apiKey) {
+        try {
+            return CONTENT_URL + new URI(webUrl).getRawPath()
+                    + "?show-fields=bodyText&" + API_KEY + "=" + encode(apiKey);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    // Spacing and case make no difference to what the Guardian returns, except that
+    // the search operators have to stay in capitals
+    private static String normalize(String name, String value) {
+        if (!TERMS.equals(name) && !SECTION.equals(name)) {
+            return value;
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        for (String word : value.trim().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (normalized.length() > 0) {
+                normalized.append(' ');
+            }
+            normalized.append(isOperator(word) ? word : word.toLowerCase(Locale.ROOT));
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isOperator(String word) {
+        for (String operator : OPERATORS) {
+            if (operator.equals(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String encode(TreeMap<String, String> parameters) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(encode(parameter.getKey())).append('=')
+                    .append(encode(parameter.getValue()));
+        }
+        return query.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            // Spaces as %20, the way android.net.Uri writes them
+            return URLEncoder.encode(value, UTF_8).replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, UTF_8);
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            // Left as it was sent
+            return value;
+        }
+    }
+}
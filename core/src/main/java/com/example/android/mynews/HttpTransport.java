@@ -0,0 +1,402 @@
+package com.example.android.mynews;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Issues GET requests to the Guardian over kept-alive connections.
+ * Bodies are requested gzip-compressed and handed back already decompressed,
+ * and every response records how long each stage of the request took.
+ * <p>
+ * Timeouts follow the latency of recent requests. Since every request is an idempotent
+ * GET, dropped connections, 5xx responses and 429s are retried a few times with jittered
+ * exponential backoff, and a host that keeps failing is left alone for a while.
+ */
+final class HttpTransport {
+
+    // Used until enough requests have been timed to know better
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 3000;
+    // Timeouts never drop below what a healthy request needs, nor grow past this
+    private static final int MIN_READ_TIMEOUT_MILLIS = 1000;
+    private static final int MIN_CONNECT_TIMEOUT_MILLIS = 1500;
+    private static final int MAX_TIMEOUT_MILLIS = 20 * 1000;
+    // A timeout is this many times the latency that 95% of recent requests beat
+    private static final double TIMEOUT_PERCENTILE = 0.95;
+    private static final int TIMEOUT_HEADROOM = 3;
+    private static final int LATENCY_WINDOW = 50;
+
+    // Tries per request, and the backoff between them before jitter
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 4000;
+    // A Retry-After longer than this is not waited out inside a request
+    private static final long MAX_RETRY_AFTER_MILLIS = 10 * 1000;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String HTTP_DATE_PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    // Buffer used to drain unread bytes so the connection can go back to the pool
+    private static final int DRAIN_BUFFER_SIZE = 2048;
+
+    private static final LatencyTracker CONNECT_LATENCY = new LatencyTracker(LATENCY_WINDOW);
+    private static final LatencyTracker FIRST_BYTE_LATENCY = new LatencyTracker(LATENCY_WINDOW);
+    private static final Random JITTER = new Random();
+
+    static {
+        // HttpURLConnection pools sockets per host as long as bodies are fully read and closed
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", "5");
+    }
+
+    // Create a private constructor
+    private HttpTransport() {
+    }
+
+    /**
+     * How long each stage of one request took, and how many bytes crossed the wire.
+     */
+    static final class Timings {
+        long connectMillis;
+        long firstByteMillis;
+        long transferMillis;
+        // Time spent inside the JSON parser, which overlaps the transfer
+        long parseMillis;
+        long wireBytes;
+
+        @Override
+        public String toString() {
+            return "connect=" + connectMillis + "ms ttfb=" + firstByteMillis
+                    + "ms transfer=" + transferMillis + "ms parse=" + parseMillis
+                    + "ms bytes=" + wireBytes;
+        }
+    }
+
+    /**
+     * Lets another thread abort a request. Cancelling disconnects the connection,
+     * which makes a blocked connect or read fail right away instead of finishing.
+     */
+    static final class Cancellable {
+        private HttpURLConnection mConnection;
+        private boolean mCancelled;
+
+        synchronized void cancel() {
+            mCancelled = true;
+            if (mConnection != null) {
+                mConnection.disconnect();
+            }
+            notifyAll();
+        }
+
+        synchronized boolean isCancelled() {
+            return mCancelled;
+        }
+
+        // Waits out a backoff, returning early with false if cancelled meanwhile
+        private synchronized boolean sleep(long millis) throws InterruptedIOException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            long remaining = millis;
+            while (!mCancelled && remaining > 0) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted during backoff");
+                }
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+            return !mCancelled;
+        }
+
+        private synchronized void attach(HttpURLConnection connection) throws IOException {
+            if (mCancelled) {
+                throw new InterruptedIOException("Request cancelled");
+            }
+            mConnection = connection;
+        }
+    }
+
+    /**
+     * Thrown instead of sending a request to a host whose circuit is open.
+     */
+    static final class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CircuitOpenException(String host) {
+            super("Circuit open for " + host);
+        }
+    }
+
+    /**
+     * An open response. Closing it reads off any remaining bytes and closes the body
+     * without disconnecting, which leaves the socket free for the next request.
+     */
+    static final class Response {
+        final int code;
+        final Timings timings;
+        private final HttpURLConnection mConnection;
+        private final long mFirstByteTime;
+        private InputStream mBody;
+
+        private Response(HttpURLConnection connection, int code, Timings timings,
+                         long firstByteTime) {
+            mConnection = connection;
+            this.code = code;
+            this.timings = timings;
+            mFirstByteTime = firstByteTime;
+        }
+
+        String header(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /**
+         * Returns the decompressed response body. Only valid for successful responses.
+         */
+        InputStream body() throws IOException {
+            if (mBody == null) {
+                InputStream wire = new CountingInputStream(mConnection.getInputStream(), timings);
+                if ("gzip".equalsIgnoreCase(mConnection.getContentEncoding())) {
+                    mBody = new GZIPInputStream(wire);
+                } else {
+                    mBody = wire;
+                }
+            }
+            return mBody;
+        }
+
+        void close() {
+            try {
+                InputStream stream = mBody;
+                if (stream == null) {
+                    stream = code < HttpURLConnection.HTTP_BAD_REQUEST
+                            ? mConnection.getInputStream() : mConnection.getErrorStream();
+                }
+                if (stream != null) {
+                    byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+                    while (stream.read(buffer) != -1) {
+                        // Discard what the parser did not need
+                    }
+                    stream.close();
+                }
+            } catch (IOException e) {
+                // A broken stream cannot be reused, so let this connection go
+                mConnection.disconnect();
+            }
+            timings.transferMillis = Clock.elapsedMillis() - mFirstByteTime;
+            Metrics.TRANSFER.recordMillis(timings.transferMillis);
+            Metrics.WIRE_BYTES.add(timings.wireBytes);
+            if (code == HttpURLConnection.HTTP_OK) {
+                BandwidthEstimator.getInstance().record(timings);
+            }
+        }
+    }
+
+    /**
+     * Sends a GET request with the given validators (either may be null)
+     * and returns once the response headers have arrived.
+     */
+    static Response get(URL url, String eTag, String lastModified) throws IOException {
+        return get(url, eTag, lastModified, null);
+    }
+
+    /**
+     * Same as above, but the request can be aborted through the given cancellable (may be null).
+     * Failed attempts are retried; the response of the last attempt is returned.
+     *
+     * @throws CircuitOpenException if the host has been failing and is being left alone
+     */
+    static Response get(URL url, String eTag, String lastModified, Cancellable cancellable)
+            throws IOException {
+        return get(url, eTag, lastModified, cancellable, false);
+    }
+
+    /**
+     * Same as above. A background request, such as a prefetch nobody is waiting on, is
+     * sent once without retries and has a circuit breaker of its own, so a host refusing
+     * it (a 429, say) is not kept from the requests the user is waiting on.
+     */
+    static Response get(URL url, String eTag, String lastModified, Cancellable cancellable,
+                        boolean background) throws IOException {
+        CircuitBreaker breaker = background ? CircuitBreaker.forBackground(url.getAuthority())
+                : CircuitBreaker.forAuthority(url.getAuthority());
+        if (!breaker.allowRequest()) {
+            throw new CircuitOpenException(url.getAuthority());
+        }
+        if (cancellable == null) {
+            cancellable = new Cancellable();
+        }
+        int maxAttempts = background ? 1 : MAX_ATTEMPTS;
+
+        for (int attempt = 0; ; attempt++) {
+            boolean lastAttempt = attempt == maxAttempts - 1;
+            Response response;
+            try {
+                response = attempt(url, eTag, lastModified, cancellable, attempt);
+            } catch (IOException e) {
+                if (cancellable.isCancelled()) {
+                    // Not the host's fault, so the breaker learns nothing
+                    breaker.onAbandoned();
+                    throw e;
+                }
+                if (lastAttempt) {
+                    breaker.onFailure(0);
+                    throw e;
+                }
+                backOff(cancellable, backoffMillis(attempt));
+                continue;
+            }
+
+            if (!isRetryable(response.code)) {
+                Metrics.CONNECT.recordMillis(response.timings.connectMillis);
+                Metrics.FIRST_BYTE.recordMillis(response.timings.firstByteMillis);
+                breaker.onSuccess();
+                return response;
+            }
+            long retryAfter = retryAfterMillis(response);
+            if (lastAttempt || retryAfter > MAX_RETRY_AFTER_MILLIS) {
+                breaker.onFailure(retryAfter);
+                return response;
+            }
+            response.close();
+            backOff(cancellable, Math.max(retryAfter, backoffMillis(attempt)));
+        }
+    }
+
+    // Sends one attempt of a request and returns once the response headers have arrived
+    private static Response attempt(URL url, String eTag, String lastModified,
+                                    Cancellable cancellable, int attempt) throws IOException {
+        Timings timings = new Timings();
+        long start = Clock.elapsedMillis();
+        Metrics.REQUESTS.add(1);
+
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        // A retry after a timeout gets longer to answer
+        urlConnection.setReadTimeout(timeoutMillis(FIRST_BYTE_LATENCY,
+                DEFAULT_READ_TIMEOUT_MILLIS, MIN_READ_TIMEOUT_MILLIS, attempt));
+        urlConnection.setConnectTimeout(timeoutMillis(CONNECT_LATENCY,
+                DEFAULT_CONNECT_TIMEOUT_MILLIS, MIN_CONNECT_TIMEOUT_MILLIS, attempt));
+        // Using GET because we are trying to retrieve info from their servers
+        urlConnection.setRequestMethod("GET");
+        // Asking for gzip ourselves turns off transparent decompression, see body()
+        urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+        // Ask the server to skip the body if what we already have is still current
+        if (eTag != null) {
+            urlConnection.setRequestProperty("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            urlConnection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+        // Set once connected, so a failure can be put down to the stage it happened in
+        long connected = -1;
+        try {
+            cancellable.attach(urlConnection);
+            urlConnection.connect();
+            connected = Clock.elapsedMillis();
+            timings.connectMillis = connected - start;
+            CONNECT_LATENCY.record(timings.connectMillis);
+
+            int code = urlConnection.getResponseCode();
+            long firstByte = Clock.elapsedMillis();
+            timings.firstByteMillis = firstByte - connected;
+            // Error statuses count too: they took as long as the network made them
+            FIRST_BYTE_LATENCY.record(timings.firstByteMillis);
+            return new Response(urlConnection, code, timings, firstByte);
+        } catch (IOException e) {
+            urlConnection.disconnect();
+            // A stage that failed or timed out took at least this long; leaving it out
+            // would fit the timeouts to the requests that got through
+            if (!cancellable.isCancelled()) {
+                long failed = Clock.elapsedMillis();
+                if (connected < 0) {
+                    CONNECT_LATENCY.record(failed - start);
+                } else {
+                    FIRST_BYTE_LATENCY.record(failed - connected);
+                }
+            }
+            throw e;
+        }
+    }
+
+    // Scales the recent latency of a stage into a timeout, doubling it for each retry
+    private static int timeoutMillis(LatencyTracker latency, int defaultMillis, int minMillis,
+                                     int attempt) {
+        long recent = latency.percentile(TIMEOUT_PERCENTILE);
+        long timeout = recent < 0 ? defaultMillis : Math.max(minMillis, recent * TIMEOUT_HEADROOM);
+        return (int) Math.min(MAX_TIMEOUT_MILLIS, timeout << attempt);
+    }
+
+    // Overload and server errors may clear up; anything else will not
+    private static boolean isRetryable(int code) {
+        return code == HTTP_TOO_MANY_REQUESTS || code >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    // Full jitter: a random wait up to the exponential backoff, so clients spread out
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        synchronized (JITTER) {
+            return (long) (JITTER.nextDouble() * ceiling);
+        }
+    }
+
+    private static void backOff(Cancellable cancellable, long millis) throws IOException {
+        if (!cancellable.sleep(millis)) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+    }
+
+    // Reads Retry-After as either delay-seconds or an HTTP date; 0 if absent
+    private static long retryAfterMillis(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(retryAfter) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds, so it should be a date
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_PATTERN, Locale.US);
+            return Math.max(0, format.parse(retryAfter).getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    // Counts the compressed bytes read off the socket
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Timings mTimings;
+
+        CountingInputStream(InputStream in, Timings timings) {
+            super(in);
+            mTimings = timings;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mTimings.wireBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                mTimings.wireBytes += read;
+            }
+            return read;
+        }
+    }
+}
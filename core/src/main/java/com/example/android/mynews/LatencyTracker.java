@@ -0,0 +1,43 @@
+package com.example.android.mynews;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples of one request stage,
+ * so timeouts can follow what the network is actually doing.
+ */
+final class LatencyTracker {
+
+    // Fewer samples than this say little about the network
+    private static final int MIN_SAMPLES = 5;
+
+    private final long[] mSamples;
+    private int mCount;
+    private int mNext;
+
+    LatencyTracker(int window) {
+        mSamples = new long[window];
+    }
+
+    synchronized void record(long millis) {
+        mSamples[mNext] = millis;
+        mNext = (mNext + 1) % mSamples.length;
+        if (mCount < mSamples.length) {
+            mCount++;
+        }
+    }
+
+    /**
+     * Returns the latency below which the given fraction of recent samples fall,
+     * or -1 until there are enough samples to tell.
+     */
+    synchronized long percentile(double fraction) {
+        if (mCount < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * mCount) - 1;
+        return sorted[Math.max(0, Math.min(mCount - 1, index))];
+    }
+}
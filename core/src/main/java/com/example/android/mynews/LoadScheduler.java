@@ -0,0 +1,274 @@
+package com.example.android.mynews;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs article loads on a small dedicated pool, interactive searches ahead of background
+ * work such as page prefetch and refresh. When an interactive load arrives and every
+ * thread is busy, a running background load is pre-empted: its request is cancelled
+ * and it goes back in the queue to run again once the interactive work is done.
+ */
+final class LoadScheduler {
+
+    /**
+     * Whether a load is waited on by the user or can be put off.
+     */
+    enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    /**
+     * The work of one load. It is given the cancellable for its request, which is
+     * cancelled when the load is cancelled or pre-empted, and may be run more than once.
+     */
+    interface Job<T> {
+        T run(HttpTransport.Cancellable cancellable) throws Exception;
+    }
+
+    /**
+     * Called on the worker thread once a load has finished, unless it was cancelled.
+     */
+    interface OnLoadFinishedListener<T> {
+        void onLoadFinished(T result);
+    }
+
+    private static final int THREADS = 2;
+    private static final long IDLE_THREAD_MILLIS = 30 * 1000;
+
+    private static final LoadScheduler sInstance = new LoadScheduler(THREADS);
+
+    private final ThreadPoolExecutor mExecutor;
+    private final int mThreads;
+    // Loads currently on a thread, so an interactive one can find something to pre-empt
+    private final Set<Task<?>> mRunning = new HashSet<>();
+    // Keeps loads of the same priority in the order they were scheduled
+    private final AtomicLong mSequence = new AtomicLong();
+
+    LoadScheduler(int threads) {
+        mThreads = threads;
+        mExecutor = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_MILLIS,
+                TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    static LoadScheduler getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Queues a load. The returned task can be waited on or cancelled; cancelling it
+     * also cancels the request it is making.
+     */
+    <T> Task<T> schedule(Priority priority, Job<T> job, OnLoadFinishedListener<T> listener) {
+        Task<T> task = new Task<>(priority, new Attempt<>(job), listener,
+                mSequence.getAndIncrement());
+        Task<?> victim = priority == Priority.INTERACTIVE ? findBackgroundVictim() : null;
+        // Queue first, so the pre-empted load goes back in behind this one
+        mExecutor.execute(task);
+        if (victim != null) {
+            victim.preempt();
+        }
+        return task;
+    }
+
+    /**
+     * Lets the threads finish the loads already queued and then stop, so a scheduler
+     * made for one run does not keep the process alive. Nothing more may be scheduled,
+     * and a load pre-empted from here on fails instead of running again.
+     */
+    void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    // A background load to send back to the queue so an interactive load gets a thread
+    private synchronized Task<?> findBackgroundVictim() {
+        if (mRunning.size() < mThreads) {
+            // A thread is free, so nothing has to wait
+            return null;
+        }
+        Task<?> victim = null;
+        for (Task<?> task : mRunning) {
+            // The most recently scheduled background load has the least work to lose
+            if (task.mPriority == Priority.BACKGROUND
+                    && (victim == null || task.mSequence > victim.mSequence)) {
+                victim = task;
+            }
+        }
+        return victim;
+    }
+
+    private synchronized void onStarted(Task<?> task) {
+        mRunning.add(task);
+    }
+
+    private synchronized void onStopped(Task<?> task) {
+        mRunning.remove(task);
+    }
+
+    /**
+     * One attempt at a job: runs it with the cancellable it is given and keeps the
+     * outcome, so a pre-empted attempt can be thrown away and the job run again.
+     */
+    private static final class Attempt<T> implements Runnable {
+        private final Job<T> mJob;
+        private Task<T> mTask;
+        private HttpTransport.Cancellable mCancellable;
+        private T mResult;
+        private Exception mFailure;
+
+        Attempt(Job<T> job) {
+            mJob = job;
+        }
+
+        void reset(HttpTransport.Cancellable cancellable) {
+            mCancellable = cancellable;
+            mResult = null;
+            mFailure = null;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mResult = mJob.run(mCancellable);
+            } catch (Exception e) {
+                mFailure = e;
+            } finally {
+                // From here on the outcome stands, however late a pre-emption arrives
+                mTask.onAttemptFinished();
+            }
+        }
+    }
+
+    /**
+     * A scheduled load. Runs its job until the job finishes without being pre-empted.
+     */
+    final class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+        private final Priority mPriority;
+        private final Attempt<T> mAttempt;
+        private final OnLoadFinishedListener<T> mListener;
+        private final long mSequence;
+        private HttpTransport.Cancellable mCancellable;
+        private boolean mPreempted;
+        // Set once an attempt has returned, after which pre-empting it would only repeat it
+        private boolean mAttemptFinished;
+
+        private Task(Priority priority, Attempt<T> attempt, OnLoadFinishedListener<T> listener,
+                     long sequence) {
+            // Each attempt runs through runAndReset, and only a finished one sets the result
+            super(attempt, null);
+            attempt.mTask = this;
+            mPriority = priority;
+            mAttempt = attempt;
+            mListener = listener;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            HttpTransport.Cancellable cancellable = new HttpTransport.Cancellable();
+            synchronized (this) {
+                mCancellable = cancellable;
+                mPreempted = false;
+                mAttemptFinished = false;
+            }
+            mAttempt.reset(cancellable);
+            onStarted(this);
+            try {
+                runAndReset();
+            } finally {
+                onStopped(this);
+            }
+
+            boolean requeue;
+            synchronized (this) {
+                requeue = mPreempted && !isCancelled();
+                mCancellable = null;
+            }
+            if (requeue) {
+                requeue();
+            } else if (mAttempt.mFailure != null) {
+                setException(mAttempt.mFailure);
+            } else {
+                set(mAttempt.mResult);
+            }
+        }
+
+        // Puts a pre-empted task back in the queue, or fails it if the scheduler has been
+        // shut down since, rather than leave it unfinished for get() to wait on forever
+        private void requeue() {
+            if (mExecutor.isShutdown()) {
+                setException(new RejectedExecutionException(
+                        "Pre-empted after the scheduler was shut down"));
+                return;
+            }
+            try {
+                mExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Shut down between the check and the execute
+                setException(e);
+            }
+        }
+
+        private synchronized void onAttemptFinished() {
+            mAttemptFinished = true;
+        }
+
+        /**
+         * Aborts the current attempt so the thread is freed; run() puts the task back.
+         * Returns false if no attempt is running, e.g. because it has just finished.
+         */
+        synchronized boolean preempt() {
+            if (mCancellable == null || mAttemptFinished) {
+                return false;
+            }
+            mPreempted = true;
+            mCancellable.cancel();
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            synchronized (this) {
+                if (mCancellable != null) {
+                    mCancellable.cancel();
+                }
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            if (mListener != null && !isCancelled()) {
+                try {
+                    mListener.onLoadFinished(get());
+                } catch (Exception e) {
+                    mListener.onLoadFinished(null);
+                }
+            }
+        }
+
+        Priority getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+            return mSequence < other.mSequence ? -1 : mSequence == other.mSequence ? 0 : 1;
+        }
+    }
+}
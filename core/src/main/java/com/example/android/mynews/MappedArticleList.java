@@ -0,0 +1,102 @@
+package com.example.android.mynews;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable list of {@link Article} records in an {@link ArticleFile}. Only the
+ * record numbers are held, four bytes a row, and each article is read from the file
+ * when asked for. Changes return a new list, leaving this one as it was. Clearing the
+ * file ends every list of it; reading one then throws {@link IllegalStateException}.
+ */
+final class MappedArticleList extends AbstractList<Article> implements RandomAccess {
+
+    private final ArticleFile mFile;
+    // The file's epoch when these records were written
+    private final int mEpoch;
+    private final int[] mRecords;
+
+    private MappedArticleList(ArticleFile file, int epoch, int[] records) {
+        mFile = file;
+        mEpoch = epoch;
+        mRecords = records;
+    }
+
+    static MappedArticleList empty(ArticleFile file) {
+        return new MappedArticleList(file, file.epoch(), new int[0]);
+    }
+
+    /**
+     * Returns a list of the articles, appending those the file does not hold unchanged,
+     * unless they are already a list in it.
+     */
+    static MappedArticleList of(ArticleFile file, List<Article> articles) {
+        if (articles instanceof MappedArticleList && ((MappedArticleList) articles).mFile == file
+                && ((MappedArticleList) articles).mEpoch == file.epoch()) {
+            return (MappedArticleList) articles;
+        }
+        int[] records = new int[articles.size()];
+        int epoch = file.epoch();
+        internAll(file, articles, records, 0);
+        // Cleared meanwhile on another thread, so some records may be of the new epoch
+        file.checkEpoch(epoch);
+        return new MappedArticleList(file, epoch, records);
+    }
+
+    /**
+     * Returns this list with the articles added to the end.
+     */
+    MappedArticleList plus(List<Article> articles) {
+        mFile.checkEpoch(mEpoch);
+        int[] records = Arrays.copyOf(mRecords, mRecords.length + articles.size());
+        internAll(mFile, articles, records, mRecords.length);
+        return new MappedArticleList(mFile, mEpoch, records);
+    }
+
+    /**
+     * Returns this list with the articles added to the top.
+     */
+    MappedArticleList plusFirst(List<Article> articles) {
+        mFile.checkEpoch(mEpoch);
+        int[] records = new int[articles.size() + mRecords.length];
+        internAll(mFile, articles, records, 0);
+        System.arraycopy(mRecords, 0, records, articles.size(), mRecords.length);
+        return new MappedArticleList(mFile, mEpoch, records);
+    }
+
+    private static void internAll(ArticleFile file, List<Article> articles, int[] records,
+                                  int start) {
+        for (int i = 0; i < articles.size(); i++) {
+            records[start + i] = file.intern(articles.get(i));
+        }
+    }
+
+    /**
+     * Returns whether the rows at the two positions are the same record, and so the
+     * same article, without reading either.
+     */
+    boolean sameRecord(int index, MappedArticleList other, int otherIndex) {
+        return mFile == other.mFile && mEpoch == other.mEpoch
+                && mRecords[index] == other.mRecords[otherIndex];
+    }
+
+    /**
+     * Returns the article at the position without keeping it decoded, see
+     * {@link ArticleFile#peek}.
+     */
+    Article peek(int index) {
+        return mFile.peek(mEpoch, mRecords[index]);
+    }
+
+    @Override
+    public Article get(int index) {
+        return mFile.read(mEpoch, mRecords[index]);
+    }
+
+    @Override
+    public int size() {
+        return mRecords.length;
+    }
+}
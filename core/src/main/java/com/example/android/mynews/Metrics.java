@@ -0,0 +1,356 @@
+package com.example.android.mynews;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-stage timers and counters for the path from request to rendered row: connect,
+ * first byte, transfer, parse, date formatting, text layout and binding, plus bytes,
+ * articles, parse allocations and cache hits, the frame times of the scrolling list, how long the
+ * reader takes to open and the payload size of each recent query. While metrics are
+ * off, recording costs one volatile read. A snapshot of everything can be shown on the
+ * debug screen or dumped for regression tracking.
+ */
+final class Metrics {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // Off until the app turns it on, which debug builds do at startup
+    private static volatile boolean sEnabled;
+    // Null where nothing counts allocations, as on a plain JVM
+    private static volatile AllocationSource sAllocations;
+
+    static final Timer CONNECT = new Timer("connect");
+    static final Timer FIRST_BYTE = new Timer("first byte");
+    static final Timer TRANSFER = new Timer("transfer");
+    static final Timer PARSE = new Timer("parse");
+    static final Timer DATE_FORMAT = new Timer("date format");
+    // Row text laid out in the background ahead of binding, and on the UI thread while
+    // binding when it was not ready
+    static final Timer TEXT_LAYOUT_AHEAD = new Timer("text layout ahead");
+    static final Timer TEXT_LAYOUT_ON_BIND = new Timer("text layout on bind");
+    // Keeps the slowest few, which are the binds that cost a frame
+    static final Timer BIND = new Timer("bind", 5);
+    // Time between frames while the article list scrolls
+    static final Timer FRAME = new Timer("frame");
+    // From tapping a row to the reader showing the article's body
+    static final Timer READER_OPEN = new Timer("reader open");
+    // Setting the body on the reader's text view, which lays it out on the UI thread
+    static final Timer READER_TEXT = new Timer("reader text", 5);
+    private static final Timer[] TIMERS = {CONNECT, FIRST_BYTE, TRANSFER, PARSE, DATE_FORMAT,
+            TEXT_LAYOUT_AHEAD, TEXT_LAYOUT_ON_BIND, BIND, FRAME, READER_OPEN, READER_TEXT};
+
+    static final Counter REQUESTS = new Counter("requests");
+    static final Counter WIRE_BYTES = new Counter("wire bytes");
+    static final Counter ARTICLES_PARSED = new Counter("articles parsed");
+    // Rows whose text had to be laid out while binding rather than ahead of time
+    static final Counter LAYOUTS_ON_BIND = new Counter("layouts on bind");
+    static final Counter DROPPED_FRAMES = new Counter("dropped frames");
+    // Bytes allocated by parses that completed, so garbage per article can be tracked
+    static final Counter PARSE_ALLOCATED_BYTES = new Counter("parse allocated bytes");
+    private static final Counter[] COUNTERS = {REQUESTS, WIRE_BYTES, ARTICLES_PARSED,
+            LAYOUTS_ON_BIND, DROPPED_FRAMES, PARSE_ALLOCATED_BYTES};
+
+    // Queries whose payload sizes are kept; the one fetched longest ago is dropped first
+    private static final int MAX_PAYLOAD_QUERIES = 10;
+    // Guarded by itself
+    private static final LinkedHashMap<String, Payload> PAYLOADS =
+            new LinkedHashMap<String, Payload>(MAX_PAYLOAD_QUERIES * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Payload> eldest) {
+                    return size() > MAX_PAYLOAD_QUERIES;
+                }
+            };
+
+    // Create a private constructor
+    private Metrics() {
+    }
+
+    static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Counts the bytes allocated by the calling thread. The platform provides it, since
+     * plain Java has no portable way to ask.
+     */
+    interface AllocationSource {
+        long threadAllocatedBytes();
+    }
+
+    static void setAllocationSource(AllocationSource source) {
+        sAllocations = source;
+    }
+
+    /**
+     * Marks the start of a stage whose allocations are counted, to be passed to
+     * {@link Counter#addAllocatedSince}. Returns -1 while metrics are off or nothing
+     * counts allocations.
+     */
+    static long startAllocations() {
+        AllocationSource source = sAllocations;
+        return sEnabled && source != null ? source.threadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Marks the start of a timed stage, to be passed to {@link Timer#stop}.
+     * Returns 0 without reading the clock while metrics are off.
+     */
+    static long start() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * How many times a stage ran, and how long it took in total and at most. A timer
+     * can also keep its few slowest times, slowest first.
+     */
+    static final class Timer {
+        private final String mName;
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mTotalNanos = new AtomicLong();
+        private final AtomicLong mMaxNanos = new AtomicLong();
+        // Null unless the slowest times are kept; guarded by itself
+        private final long[] mSlowestNanos;
+
+        private Timer(String name) {
+            this(name, 0);
+        }
+
+        private Timer(String name, int slowestKept) {
+            mName = name;
+            mSlowestNanos = slowestKept == 0 ? null : new long[slowestKept];
+        }
+
+        void stop(long start) {
+            if (start != 0 && sEnabled) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        // For stages HttpTransport has already timed
+        void recordMillis(long millis) {
+            if (sEnabled) {
+                record((long) (millis * NANOS_PER_MILLI));
+            }
+        }
+
+        // For intervals measured by someone else's clock, such as frame times
+        void recordNanos(long nanos) {
+            if (sEnabled) {
+                record(nanos);
+            }
+        }
+
+        long count() {
+            return mCount.get();
+        }
+
+        private void record(long nanos) {
+            mCount.incrementAndGet();
+            mTotalNanos.addAndGet(nanos);
+            long max = mMaxNanos.get();
+            while (nanos > max && !mMaxNanos.compareAndSet(max, nanos)) {
+                max = mMaxNanos.get();
+            }
+            if (mSlowestNanos != null) {
+                keepIfSlow(nanos);
+            }
+        }
+
+        // Insertion into a short array kept in descending order
+        private void keepIfSlow(long nanos) {
+            synchronized (mSlowestNanos) {
+                int last = mSlowestNanos.length - 1;
+                if (nanos <= mSlowestNanos[last]) {
+                    return;
+                }
+                int i = last;
+                while (i > 0 && mSlowestNanos[i - 1] < nanos) {
+                    mSlowestNanos[i] = mSlowestNanos[i - 1];
+                    i--;
+                }
+                mSlowestNanos[i] = nanos;
+            }
+        }
+
+        private void reset() {
+            mCount.set(0);
+            mTotalNanos.set(0);
+            mMaxNanos.set(0);
+            if (mSlowestNanos != null) {
+                synchronized (mSlowestNanos) {
+                    Arrays.fill(mSlowestNanos, 0);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            long count = mCount.get();
+            double average = count == 0 ? 0 : mTotalNanos.get() / NANOS_PER_MILLI / count;
+            String summary = String.format(Locale.US, "%s: n=%d avg=%.2fms max=%.2fms",
+                    mName, count, average, mMaxNanos.get() / NANOS_PER_MILLI);
+            if (mSlowestNanos == null) {
+                return summary;
+            }
+            StringBuilder slowest = new StringBuilder(summary).append(" slowest=");
+            synchronized (mSlowestNanos) {
+                for (int i = 0; i < mSlowestNanos.length && mSlowestNanos[i] > 0; i++) {
+                    slowest.append(String.format(Locale.US, i == 0 ? "%.2f" : ",%.2f",
+                            mSlowestNanos[i] / NANOS_PER_MILLI));
+                }
+            }
+            return slowest.append("ms").toString();
+        }
+    }
+
+    /**
+     * A running total.
+     */
+    static final class Counter {
+        private final String mName;
+        private final AtomicLong mValue = new AtomicLong();
+
+        private Counter(String name) {
+            mName = name;
+        }
+
+        void add(long amount) {
+            if (sEnabled) {
+                mValue.addAndGet(amount);
+            }
+        }
+
+        /**
+         * Adds the bytes the calling thread allocated since the given
+         * {@link #startAllocations} mark.
+         */
+        void addAllocatedSince(long start) {
+            AllocationSource source = sAllocations;
+            if (start >= 0 && source != null) {
+                add(Math.max(0, source.threadAllocatedBytes() - start));
+            }
+        }
+
+        long get() {
+            return mValue.get();
+        }
+
+        @Override
+        public String toString() {
+            return mName + ": " + mValue.get();
+        }
+    }
+
+    /**
+     * Response sizes of one query, so fields that are asked for but not read show up
+     * as bytes per article.
+     */
+    private static final class Payload {
+        private final String mQuery;
+        private long mCount;
+        private long mTotalBytes;
+        private long mTotalArticles;
+
+        Payload(String query) {
+            mQuery = query;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "payload %s: n=%d avg=%.1fKB %.0fB/article",
+                    mQuery, mCount, mTotalBytes / 1024.0 / mCount,
+                    mTotalArticles == 0 ? 0 : (double) mTotalBytes / mTotalArticles);
+        }
+    }
+
+    /**
+     * Records the bytes on the wire of a response to the query with the given cache key,
+     * and the number of articles it held.
+     */
+    static void recordPayload(String queryKey, long wireBytes, int articles) {
+        if (!sEnabled) {
+            return;
+        }
+        synchronized (PAYLOADS) {
+            Payload payload = PAYLOADS.get(queryKey);
+            if (payload == null) {
+                // The parameters say which query it was; the host is always the same
+                payload = new Payload(queryKey.substring(queryKey.indexOf('?') + 1));
+                PAYLOADS.put(queryKey, payload);
+            }
+            payload.mCount++;
+            payload.mTotalBytes += wireBytes;
+            payload.mTotalArticles += articles;
+        }
+    }
+
+    /**
+     * Returns every timer and counter, plus parse throughput and allocations per
+     * article, cache hit rate, the
+     * share of frames dropped while scrolling and recent payload sizes, one per line.
+     */
+    static String snapshot() {
+        StringBuilder snapshot = new StringBuilder();
+        for (Timer timer : TIMERS) {
+            snapshot.append(timer).append('\n');
+        }
+        for (Counter counter : COUNTERS) {
+            snapshot.append(counter).append('\n');
+        }
+
+        double parseSeconds = PARSE.mTotalNanos.get() / NANOS_PER_SECOND;
+        double articlesPerSecond = parseSeconds == 0 ? 0 : ARTICLES_PARSED.get() / parseSeconds;
+        snapshot.append(String.format(Locale.US, "parse rate: %.0f articles/s%n",
+                articlesPerSecond));
+        if (sAllocations == null) {
+            snapshot.append("parse allocations: not counted\n");
+        } else {
+            long articles = ARTICLES_PARSED.get();
+            snapshot.append(String.format(Locale.US, "parse allocations: %.0f B/article%n",
+                    articles == 0 ? 0 : (double) PARSE_ALLOCATED_BYTES.get() / articles));
+        }
+
+        ArticleCache cache = ArticleCache.getInstance();
+        int hits = cache.hitCount();
+        int lookups = hits + cache.missCount();
+        snapshot.append(String.format(Locale.US, "cache hit rate: %.1f%% of %d%n",
+                lookups == 0 ? 0 : 100.0 * hits / lookups, lookups));
+        snapshot.append(BandwidthEstimator.getInstance()).append('\n');
+
+        // A dropped frame is one that should have been drawn but was not
+        long dropped = DROPPED_FRAMES.get();
+        long expected = FRAME.count() + dropped;
+        snapshot.append(String.format(Locale.US, "jank: %.1f%% of %d frames dropped%n",
+                expected == 0 ? 0 : 100.0 * dropped / expected, expected));
+        synchronized (PAYLOADS) {
+            for (Payload payload : PAYLOADS.values()) {
+                snapshot.append(payload).append('\n');
+            }
+        }
+        return snapshot.toString();
+    }
+
+    /**
+     * Starts every timer and counter over, e.g. before a measured run.
+     */
+    static void reset() {
+        for (Timer timer : TIMERS) {
+            timer.reset();
+        }
+        for (Counter counter : COUNTERS) {
+            counter.mValue.set(0);
+        }
+        synchronized (PAYLOADS) {
+            PAYLOADS.clear();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.android.mynews;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Requesting and receiving news data from The Guardian.
+ */
+public final class QueryUtils {
+
+    // Tag for the log messages
+    private static final Logger LOGGER = Logger.getLogger(QueryUtils.class.getSimpleName());
+    private static final String UTF_8 = "UTF-8";
+
+    // Create a private constructor
+    private QueryUtils() {
+    }
+
+    /**
+     * Receives each {@link Article} on the loading thread as soon as it has been parsed.
+     */
+    interface OnArticleParsedListener {
+        void onArticleParsed(Article article);
+    }
+
+    /**
+     * The outcome of one request: the parsed articles, or notModified when the
+     * validators that were sent still match, plus the validators to send next time.
+     * Articles are only handed back from a body that was read and parsed to its end.
+     */
+    static final class Result {
+        final List<Article> articles;
+        final boolean notModified;
+        final String eTag;
+        final String lastModified;
+        // Bytes and time the request took, filled in once the response is closed
+        final HttpTransport.Timings timings;
+
+        Result(List<Article> articles, boolean notModified, String eTag, String lastModified,
+               HttpTransport.Timings timings) {
+            this.articles = articles;
+            this.notModified = notModified;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.timings = timings;
+        }
+
+        /**
+         * Returns whether this holds the whole page, so it can be stored with its
+         * validators.
+         */
+        boolean isComplete() {
+            return !notModified && articles != null;
+        }
+    }
+
+    // Query the Guardian data set and return a list of link Article objects.
+    static List<Article> getArticleData(String requestUrl) {
+        return getArticleData(requestUrl, null);
+    }
+
+    // Same as above, but also hands every Article to the listener while the response is read.
+    static List<Article> getArticleData(String requestUrl, OnArticleParsedListener listener) {
+        Result result = fetchArticles(requestUrl, null, null, listener, null);
+        return result == null ? null : result.articles;
+    }
+
+    /**
+     * Query the Guardian data set, sending the given validators (either may be null)
+     * so an unchanged result comes back as notModified without a body.
+     * The request stops as soon as the cancellable (may be null) is cancelled.
+     * Returns null if the request failed or was cancelled.
+     */
+    static Result fetchArticles(String requestUrl, String eTag, String lastModified,
+                                OnArticleParsedListener listener,
+                                HttpTransport.Cancellable cancellable) {
+        // Create URL object
+        URL url = createUrl(requestUrl);
+
+        // Perform HTTP request to the URL
+        // Parse the JSON response as it arrives and return the list of Articles
+        Result result = null;
+        try {
+            result = makeHttpRequest(url, eTag, lastModified, listener, cancellable);
+        } catch (HttpTransport.CircuitOpenException e) {
+            // The Guardian has been failing; callers fall back to what they have stored
+            LOGGER.fine(e.getMessage());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Problem making the HTTP request.", e);
+        }
+        // Everything fetched becomes searchable on the device
+        if (result != null && result.articles != null) {
+            ArticleIndex.getInstance().addAll(result.articles);
+            if (Metrics.isEnabled()) {
+                // Only worth building the key for when the payload is recorded
+                Metrics.recordPayload(GuardianQuery.keyFor(requestUrl),
+                        result.timings.wireBytes, result.articles.size());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fetches the plain text body of one article from a Guardian content request
+     * that asks for show-fields=bodyText. Returns null if the request failed, was
+     * cancelled or had no body. A background fetch is sent as a background request,
+     * see {@link HttpTransport#get(URL, String, String, HttpTransport.Cancellable, boolean)}.
+     */
+    static String fetchBodyText(String requestUrl, boolean background,
+                                HttpTransport.Cancellable cancellable) {
+        URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
+        try {
+            HttpTransport.Response response =
+                    HttpTransport.get(url, null, null, cancellable, background);
+            try {
+                if (response.code != HttpURLConnection.HTTP_OK) {
+                    LOGGER.severe("Error response code: " + response.code);
+                    return null;
+                }
+                String bodyText = extractBodyText(response.body());
+                return cancellable != null && cancellable.isCancelled() ? null : bodyText;
+            } finally {
+                response.close();
+            }
+        } catch (HttpTransport.CircuitOpenException e) {
+            LOGGER.fine(e.getMessage());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Problem fetching the article body.", e);
+        }
+        return null;
+    }
+
+    // Returns new URL object from the given string URL.
+    private static URL createUrl(String stringUrl) {
+        URL url = null;
+        try {
+            url = new URL(stringUrl);
+        } catch (MalformedURLException e) {
+            LOGGER.log(Level.SEVERE, "Problem building the URL ", e);
+        }
+        return url;
+    }
+
+    // Make an HTTP request to the given URL and parse the response body as it is read.
+    private static Result makeHttpRequest(URL url, String eTag, String lastModified,
+                                          OnArticleParsedListener listener,
+                                          HttpTransport.Cancellable cancellable)
+            throws IOException {
+        // If the URL is null, return early.
+        if (url == null) {
+            return null;
+        }
+
+        Result result = null;
+        HttpTransport.Response response = HttpTransport.get(url, eTag, lastModified, cancellable);
+        try {
+            // If the request was successful (code 200),
+            // Parse the response straight off the decompressed input stream.
+            String newETag = response.header("ETag");
+            String newLastModified = response.header("Last-Modified");
+            if (response.code == HttpURLConnection.HTTP_OK) {
+                long parseStart = Clock.elapsedMillis();
+                long parseTimer = Metrics.start();
+                long parseAllocations = Metrics.startAllocations();
+                List<Article> articles = extractFromStream(response.body(), listener);
+                response.timings.parseMillis = Clock.elapsedMillis() - parseStart;
+                // A cancelled read ends early, so what was parsed is not the whole result
+                // and is left out of the parse metrics too
+                if (cancellable == null || !cancellable.isCancelled()) {
+                    Metrics.PARSE.stop(parseTimer);
+                    Metrics.ARTICLES_PARSED.add(articles.size());
+                    Metrics.PARSE_ALLOCATED_BYTES.addAllocatedSince(parseAllocations);
+                    result = new Result(articles, false, newETag, newLastModified,
+                            response.timings);
+                }
+            } else if (response.code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                result = new Result(null, true, eTag, lastModified, response.timings);
+            } else {
+                LOGGER.severe("Error response code: " + response.code);
+            }
+        } catch (IOException e) {
+            // A body cut off or garbled part way fails the whole request, so its first
+            // articles are never stored as if they were the page
+            if (cancellable == null || !cancellable.isCancelled()) {
+                LOGGER.log(Level.SEVERE, "Problem getting the Guardian JSON results.", e);
+            }
+        } finally {
+            // Leaves the connection open for the next request
+            response.close();
+        }
+        // Android's logging bridge drops anything below INFO, so the timings are logged at
+        // INFO, and only while metrics are being collected
+        if (Metrics.isEnabled()) {
+            LOGGER.info(url.getPath() + " " + response.timings);
+        }
+        return result;
+    }
+
+    /**
+     * Return a list of {@link Article} objects read from a JSON response stream.
+     * The {@link JsonReader} pulls one token at a time, so each {@link Article}
+     * is built while the response is still being read and fields that are not
+     * shown are skipped without being copied.
+     *
+     * @throws IOException if the response was cut off or is not the JSON expected, so a
+     *                     short page is never taken for the whole result
+     */
+    static List<Article> extractFromStream(InputStream inputStream,
+                                           OnArticleParsedListener listener) throws IOException {
+        List<Article> articles = new ArrayList<>();
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        try {
+            // Open the JSON object and look for the key "response"
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("response".equals(reader.nextName())) {
+                    readResponse(reader, articles, listener);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Problem parsing the news JSON results", e);
+        }
+        return articles;
+    }
+
+    /**
+     * Returns the "bodyText" field of the "content" object in a Guardian content
+     * response, or null if there is none.
+     */
+    static String extractBodyText(InputStream inputStream) throws IOException {
+        String bodyText = null;
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        try {
+            // response > content > fields > bodyText, skipping everything else
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("response".equals(reader.nextName())) {
+                    bodyText = readField(reader, "content", "fields", "bodyText");
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            LOGGER.log(Level.SEVERE, "Problem parsing the article body", e);
+            return null;
+        }
+        return bodyText;
+    }
+
+    // Follows the names down through nested objects to a string value
+    private static String readField(JsonReader reader, String... path) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!path[0].equals(reader.nextName())) {
+                reader.skipValue();
+            } else if (path.length == 1) {
+                value = reader.nextString();
+            } else {
+                value = readField(reader, Arrays.copyOfRange(path, 1, path.length));
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    // Inside the "response" object find the "results" array
+    private static void readResponse(JsonReader reader, List<Article> articles,
+                                     OnArticleParsedListener listener) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("results".equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Article article = readArticle(reader);
+                    articles.add(article);
+                    if (listener != null) {
+                        listener.onArticleParsed(article);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    // Inside each "results" element read the following string values
+    private static Article readArticle(JsonReader reader) throws IOException {
+        String title = null;
+        String section = null;
+        long timeInMillis = ArticleDates.NO_TIME;
+        String url = null;
+        String thumbnailUrl = null;
+        String[] authors = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "webTitle":
+                    title = reader.nextString();
+                    break;
+                case "sectionName":
+                    section = reader.nextString();
+                    break;
+                case "webPublicationDate":
+                    timeInMillis = ArticleDates.parseIso8601(reader.nextString());
+                    break;
+                case "webUrl":
+                    url = reader.nextString();
+                    break;
+                case "tags":
+                    authors = readAuthors(reader);
+                    break;
+                case "fields":
+                    thumbnailUrl = readThumbnail(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // Now add all those strings values found into the Article Object
+        return new Article(title, authors, section, timeInMillis, url, thumbnailUrl);
+    }
+
+    // Every contributor tag carries the author name as its "webTitle"
+    private static String[] readAuthors(JsonReader reader) throws IOException {
+        List<String> authors = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("webTitle".equals(reader.nextName())) {
+                    authors.add(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return authors.toArray(new String[authors.size()]);
+    }
+
+    // The "fields" object holds the thumbnail URL when it was asked for with show-fields
+    private static String readThumbnail(JsonReader reader) throws IOException {
+        String thumbnailUrl = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("thumbnail".equals(reader.nextName())) {
+                thumbnailUrl = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return thumbnailUrl;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.example.android.mynews;
+
+/**
+ * Lets through at most a given number of requests per period: a bucket of permits
+ * that refills steadily over the period, so short bursts pass and a sustained stream
+ * is held to the average. A request finding the bucket empty is refused, not queued.
+ */
+final class RateLimiter {
+
+    private final int mMaxPermits;
+    private final double mPermitsPerMilli;
+    private double mPermits;
+    private long mLastRefill;
+
+    RateLimiter(int permits, long periodMillis) {
+        this(permits, periodMillis, Clock.elapsedMillis());
+    }
+
+    // Starts full at the given time, for tests that move the clock themselves
+    RateLimiter(int permits, long periodMillis, long nowMillis) {
+        mMaxPermits = permits;
+        mPermitsPerMilli = (double) permits / periodMillis;
+        mPermits = permits;
+        mLastRefill = nowMillis;
+    }
+
+    /**
+     * Takes a permit if one is left, returning whether the request may go ahead.
+     */
+    boolean tryAcquire() {
+        return tryAcquire(Clock.elapsedMillis());
+    }
+
+    synchronized boolean tryAcquire(long nowMillis) {
+        if (nowMillis > mLastRefill) {
+            mPermits = Math.min(mMaxPermits,
+                    mPermits + (nowMillis - mLastRefill) * mPermitsPerMilli);
+            mLastRefill = nowMillis;
+        }
+        if (mPermits < 1) {
+            return false;
+        }
+        mPermits--;
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.mynews;
+
+/**
+ * Running totals of what full reloads and incremental refreshes cost,
+ * so the saving of fetching only newer articles can be read off the log.
+ */
+final class RefreshStats {
+
+    private static final RefreshStats sInstance = new RefreshStats();
+
+    private int mFullLoads;
+    private long mFullBytes;
+    private long mFullParseMillis;
+    private int mIncrementalLoads;
+    private long mIncrementalBytes;
+    private long mIncrementalParseMillis;
+
+    static RefreshStats getInstance() {
+        return sInstance;
+    }
+
+    synchronized void recordFullLoad(HttpTransport.Timings timings) {
+        mFullLoads++;
+        mFullBytes += timings.wireBytes;
+        mFullParseMillis += timings.parseMillis;
+    }
+
+    synchronized void recordIncrementalLoad(HttpTransport.Timings timings) {
+        mIncrementalLoads++;
+        mIncrementalBytes += timings.wireBytes;
+        mIncrementalParseMillis += timings.parseMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "full: " + average(mFullBytes, mFullLoads) + " bytes, "
+                + average(mFullParseMillis, mFullLoads) + " ms parse over " + mFullLoads
+                + " loads; incremental: " + average(mIncrementalBytes, mIncrementalLoads)
+                + " bytes, " + average(mIncrementalParseMillis, mIncrementalLoads)
+                + " ms parse over " + mIncrementalLoads + " refreshes";
+    }
+
+    private static long average(long total, int count) {
+        return count == 0 ? 0 : total / count;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.mynews;
+
+import java.util.HashMap;
+
+/**
+ * Shares one String instance between every {@link Article} that repeats the same
+ * value, such as a section name or a regular contributor.
+ */
+final class StringPool {
+
+    // Past this many distinct values new strings are kept as they are
+    private static final int MAX_SIZE = 4096;
+
+    private static final StringPool sShared = new StringPool(MAX_SIZE);
+
+    private final HashMap<String, String> mStrings = new HashMap<>();
+    private final int mMaxSize;
+
+    StringPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    static StringPool shared() {
+        return sShared;
+    }
+
+    /**
+     * Returns the pooled instance equal to value, adding value if there is none yet.
+     */
+    synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = mStrings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (mStrings.size() < mMaxSize) {
+            mStrings.put(value, value);
+        }
+        return value;
+    }
+}
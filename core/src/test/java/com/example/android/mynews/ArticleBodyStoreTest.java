@@ -0,0 +1,85 @@
+package com.example.android.mynews;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stores gzipped article bodies under a byte budget.
+ */
+public class ArticleBodyStoreTest {
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("bodies", "");
+        mDirectory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void bodiesReadBackAsWritten() {
+        ArticleBodyStore store = new ArticleBodyStore(mDirectory, 1024 * 1024);
+        String body = "Caf\u00e9 owners say the rent doubled. " + repeat("More. ", 200);
+        store.write("https://www.theguardian.com/a", body);
+
+        assertTrue(store.contains("https://www.theguardian.com/a"));
+        assertEquals(body, store.read("https://www.theguardian.com/a"));
+        assertNull(store.read("https://www.theguardian.com/b"));
+        // Repetitive text compresses well below its length
+        assertTrue(store.sizeBytes() < body.length() / 4);
+    }
+
+    @Test
+    public void bodiesUsedLongestAgoAreEvictedFirst() {
+        String body = repeat("x", 100);
+        ArticleBodyStore probe = new ArticleBodyStore(mDirectory, Long.MAX_VALUE);
+        probe.write("probe", body);
+        long bodyBytes = probe.sizeBytes();
+        new File(mDirectory, mDirectory.list()[0]).delete();
+
+        // Room for two bodies
+        ArticleBodyStore store = new ArticleBodyStore(mDirectory, bodyBytes * 2);
+        store.write("old", body);
+        store.write("newer", body);
+        age(-2000);
+        store.read("old");
+        store.write("newest", body);
+
+        assertTrue(store.contains("old"));
+        assertFalse(store.contains("newer"));
+        assertTrue(store.contains("newest"));
+        assertEquals(bodyBytes * 2, store.sizeBytes());
+    }
+
+    // Moves every file's last use back, as the clock may not tick between writes
+    private void age(long millis) {
+        for (File file : mDirectory.listFiles()) {
+            file.setLastModified(file.lastModified() + millis);
+        }
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Shared fetches and the cache's bookkeeping.
+ */
+public class ArticleCacheTest {
+
+    private static final String KEY = "http://content.guardianapis.com/search?q=brexit";
+
+    private static final List<Article> ARTICLES = Collections.singletonList(
+            new Article("Brexit talks resume", null, "Politics", 0,
+                    "https://www.theguardian.com/politics/brexit", null));
+
+    private final ArticleCache mCache = new ArticleCache(60 * 1000, 100);
+
+    @Test
+    public void peekingCountsNeitherAHitNorAMiss() {
+        assertNull(mCache.peek(KEY));
+        mCache.put(KEY, ARTICLES);
+
+        assertSame(ARTICLES, mCache.peek(KEY));
+        assertEquals(0, mCache.hitCount());
+        assertEquals(0, mCache.missCount());
+    }
+
+    @Test
+    public void waiterTakesOverAFetchItsOwnerCancelled() throws Exception {
+        final HttpTransport.Cancellable owner = new HttpTransport.Cancellable();
+        final CountDownLatch ownerStarted = new CountDownLatch(1);
+        final CountDownLatch waiterWaiting = new CountDownLatch(1);
+        Thread ownerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mCache.get(KEY, new Callable<List<Article>>() {
+                    @Override
+                    public List<Article> call() throws InterruptedException {
+                        ownerStarted.countDown();
+                        waiterWaiting.await(5, TimeUnit.SECONDS);
+                        // Cancelled part way, so there is nothing to show for it
+                        owner.cancel();
+                        return null;
+                    }
+                }, owner);
+            }
+        });
+        ownerThread.start();
+        assertTrue(ownerStarted.await(5, TimeUnit.SECONDS));
+
+        final AtomicReference<List<Article>> waited = new AtomicReference<>();
+        Thread waiterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                waited.set(mCache.get(KEY, new Callable<List<Article>>() {
+                    @Override
+                    public List<Article> call() {
+                        return ARTICLES;
+                    }
+                }, new HttpTransport.Cancellable()));
+            }
+        });
+        waiterThread.start();
+        // Give the waiter time to find the owner's fetch and wait on it
+        Thread.sleep(100);
+        waiterWaiting.countDown();
+        ownerThread.join(5000);
+        waiterThread.join(5000);
+
+        assertSame(ARTICLES, waited.get());
+        assertSame(ARTICLES, mCache.peek(KEY));
+    }
+}
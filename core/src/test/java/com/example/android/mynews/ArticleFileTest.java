@@ -0,0 +1,180 @@
+package com.example.android.mynews;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes and decodes articles in a memory-mapped {@link ArticleFile}.
+ */
+public class ArticleFileTest {
+
+    private File mFile;
+    private ArticleFile mArticleFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("feed", ".articles");
+        // A one-article window, so every other read decodes from the file
+        mArticleFile = ArticleFile.create(mFile, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mArticleFile.close();
+        mFile.delete();
+        new File(mFile.getPath() + ".offsets").delete();
+    }
+
+    @Test
+    public void decodesEveryField() {
+        int full = mArticleFile.append(new Article("Titre \u00e9ditorial", new String[]{"A", "B"},
+                "Opinion", 42, "https://www.theguardian.com/a", "https://media.guim.co.uk/a"));
+        int sparse = mArticleFile.append(new Article(null, null, null, ArticleDates.NO_TIME,
+                "https://www.theguardian.com/b", null));
+
+        Article article = mArticleFile.read(full);
+        assertEquals("Titre \u00e9ditorial", article.getTitle());
+        assertEquals("A | B", article.getAuthorLabel());
+        assertEquals("Opinion", article.getSection());
+        assertEquals(42, article.getTimeInMillis());
+        assertEquals("https://www.theguardian.com/a", article.getUrl());
+        assertEquals("https://media.guim.co.uk/a", article.getThumbnailUrl());
+
+        Article empty = mArticleFile.read(sparse);
+        assertNull(empty.getTitle());
+        assertNull(empty.getAuthorLabel());
+        assertNull(empty.getSection());
+        assertEquals(ArticleDates.NO_TIME, empty.getTimeInMillis());
+        assertNull(empty.getThumbnailUrl());
+    }
+
+    @Test
+    public void growsPastTheFirstMapping() {
+        StringBuilder longTitle = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longTitle.append("A long headline ");
+        }
+        int count = 10000;
+        for (int i = 0; i < count; i++) {
+            mArticleFile.append(new Article(longTitle + "#" + i, null, "World", i,
+                    "https://www.theguardian.com/" + i, null));
+        }
+
+        assertEquals(count, mArticleFile.size());
+        assertEquals(longTitle + "#0", mArticleFile.read(0).getTitle());
+        assertEquals(5000, mArticleFile.read(5000).getTimeInMillis());
+        assertEquals("https://www.theguardian.com/9999", mArticleFile.read(count - 1).getUrl());
+    }
+
+    @Test
+    public void listsShareTheFileAndLeaveEarlierListsAlone() {
+        MappedArticleList first = MappedArticleList.of(mArticleFile,
+                Arrays.asList(article("b"), article("c")));
+        MappedArticleList appended = first.plus(Arrays.asList(article("d")));
+        MappedArticleList prepended = appended.plusFirst(Arrays.asList(article("a")));
+
+        assertEquals(2, first.size());
+        assertEquals(urls("a", "b", "c", "d"), urlsOf(prepended));
+        // A list already in the file is not written again
+        assertSame(prepended, MappedArticleList.of(mArticleFile, prepended));
+        assertEquals(4, mArticleFile.size());
+    }
+
+    @Test
+    public void unchangedArticlesAreNotWrittenAgain() {
+        MappedArticleList first = MappedArticleList.of(mArticleFile,
+                Arrays.asList(article("a"), article("b")));
+        Article edited = new Article("b, updated", null, "World", 0,
+                "https://www.theguardian.com/b", null);
+        MappedArticleList refreshed = MappedArticleList.of(mArticleFile,
+                Arrays.asList(article("a"), edited, article("c")));
+
+        // Only the edited and the new article were appended
+        assertEquals(4, mArticleFile.size());
+        assertTrue(first.sameRecord(0, refreshed, 0));
+        assertFalse(first.sameRecord(1, refreshed, 1));
+        assertEquals("b, updated", refreshed.get(1).getTitle());
+    }
+
+    @Test
+    public void clearingStartsTheFileOverAndEndsItsLists() {
+        MappedArticleList old = MappedArticleList.of(mArticleFile,
+                Arrays.asList(article("a"), article("b")));
+        mArticleFile.clear();
+
+        assertEquals(0, mArticleFile.size());
+        try {
+            old.get(0);
+            fail("Expected the cleared list to be unreadable");
+        } catch (IllegalStateException expected) {
+            // Its records are gone
+        }
+        MappedArticleList fresh = MappedArticleList.of(mArticleFile,
+                Arrays.asList(article("c")));
+        assertEquals(urls("c"), urlsOf(fresh));
+        assertEquals(1, mArticleFile.size());
+    }
+
+    @Test
+    public void heapStaysFlatAsTheFeedGrows() {
+        long small = retainedBytes(1000);
+        long large = retainedBytes(100000);
+
+        // The records are off the heap; only four bytes a row and the window are not
+        assertTrue("1k rows retain " + small + " bytes, 100k rows " + large,
+                large - small < 2 * 1024 * 1024);
+    }
+
+    // Heap held by a feed of distinct articles, measured after collecting garbage
+    private long retainedBytes(int count) {
+        mArticleFile.clear();
+        long before = usedHeap();
+        List<Article> page = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            page.add(new Article("Headline number " + i, new String[]{"Writer " + i},
+                    "World", i, "https://www.theguardian.com/world/" + i, null));
+        }
+        MappedArticleList feed = MappedArticleList.of(mArticleFile, page);
+        page = null;
+        long retained = usedHeap() - before;
+        assertEquals(count, feed.size());
+        return retained;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Article article(String name) {
+        return new Article(name, null, "World", 0, "https://www.theguardian.com/" + name, null);
+    }
+
+    private static List<String> urls(String... names) {
+        String[] urls = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            urls[i] = "https://www.theguardian.com/" + names[i];
+        }
+        return Arrays.asList(urls);
+    }
+
+    private static List<String> urlsOf(List<Article> articles) {
+        String[] urls = new String[articles.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = articles.get(i).getUrl();
+        }
+        return Arrays.asList(urls);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Searches the on-device index of fetched articles.
+ */
+public class ArticleIndexTest {
+
+    @Test
+    public void everyQueryWordMatchesAsAPrefix() {
+        ArticleIndex index = new ArticleIndex(10);
+        index.addAll(Arrays.asList(
+                article("Brexit talks stall", "Politics", 1, "Alex Writer"),
+                article("Election results", "Politics", 2, "Bo Reporter"),
+                article("Brexit and the markets", "Business", 3, "Alex Writer")));
+
+        assertEquals(2, index.search("brex", 10).size());
+        assertEquals(1, index.search("Brexit BUSI", 10).size());
+        assertEquals(2, index.search("writ", 10).size());
+        assertTrue(index.search("brexit election", 10).isEmpty());
+    }
+
+    @Test
+    public void resultsAreNewestFirst() {
+        ArticleIndex index = new ArticleIndex(10);
+        index.addAll(Arrays.asList(
+                article("Old news", "World", 1, null),
+                article("Latest news", "World", 3, null),
+                article("Middle news", "World", 2, null)));
+
+        List<Article> found = index.search("news", 2);
+
+        assertEquals(2, found.size());
+        assertEquals("Latest news", found.get(0).getTitle());
+        assertEquals("Middle news", found.get(1).getTitle());
+    }
+
+    @Test
+    public void articlesSeenLongestAgoAreEvicted() {
+        ArticleIndex index = new ArticleIndex(2);
+        Article first = article("First story", "World", 1, null);
+        index.addAll(Arrays.asList(first, article("Second story", "World", 2, null)));
+        // Seeing the first again makes the second the eldest
+        index.addAll(Arrays.asList(first, article("Third story", "World", 3, null)));
+
+        assertEquals(2, index.size());
+        assertTrue(index.search("second", 10).isEmpty());
+        assertEquals(1, index.search("first", 10).size());
+    }
+
+    @Test
+    public void survivesAWriteAndRead() throws IOException {
+        File file = File.createTempFile("article-index", ".bin");
+        file.delete();
+        try {
+            ArticleIndex written = new ArticleIndex(10);
+            written.readFrom(file);
+            written.addAll(Arrays.asList(article("Kept story", "Science", 5, "Alex Writer")));
+            written.writeIfChanged(file);
+
+            ArticleIndex read = new ArticleIndex(10);
+            read.readFrom(file);
+            List<Article> found = read.search("alex", 10);
+
+            assertEquals(1, found.size());
+            assertEquals("Kept story", found.get(0).getTitle());
+            assertEquals("Science", found.get(0).getSection());
+            assertEquals(5, found.get(0).getTimeInMillis());
+            assertNull(found.get(0).getThumbnailUrl());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static Article article(String title, String section, long time, String author) {
+        String[] authors = author == null ? null : new String[]{author};
+        return new Article(title, authors, section, time,
+                "https://www.theguardian.com/" + title.replace(' ', '-'), null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Turns measured Guardian responses into a network quality and a fetch profile.
+ */
+public class BandwidthEstimatorTest {
+
+    @Test
+    public void hintStandsUntilEnoughResponsesAreMeasured() {
+        BandwidthEstimator estimator = new BandwidthEstimator();
+        estimator.reset(BandwidthEstimator.Quality.POOR);
+        estimator.record(timings(64 * 1024, 100, 200));
+        estimator.record(timings(64 * 1024, 100, 200));
+
+        assertEquals(BandwidthEstimator.Quality.POOR, estimator.quality());
+        estimator.record(timings(64 * 1024, 100, 200));
+        assertEquals(BandwidthEstimator.Quality.EXCELLENT, estimator.quality());
+    }
+
+    @Test
+    public void slowTransfersPickTheLeanProfile() {
+        BandwidthEstimator estimator = new BandwidthEstimator();
+        // 20 KB in two seconds is 80 kbps
+        for (int i = 0; i < 3; i++) {
+            estimator.record(timings(20 * 1024, 300, 2000));
+        }
+
+        assertEquals(BandwidthEstimator.Quality.POOR, estimator.quality());
+        assertEquals(FetchProfile.LEAN, FetchProfile.forQuality(estimator.quality()));
+    }
+
+    @Test
+    public void slowFirstByteHoldsBackAFastLink() {
+        BandwidthEstimator estimator = new BandwidthEstimator();
+        for (int i = 0; i < 3; i++) {
+            estimator.record(timings(64 * 1024, 1800, 100));
+        }
+
+        assertEquals(BandwidthEstimator.Quality.MODERATE, estimator.quality());
+        assertEquals(FetchProfile.STANDARD, FetchProfile.forQuality(estimator.quality()));
+    }
+
+    @Test
+    public void leanPagesAreMeasuredSoTheFeedCanRecover() {
+        BandwidthEstimator estimator = new BandwidthEstimator();
+        estimator.reset(BandwidthEstimator.Quality.POOR);
+        // A gzipped page of ten bare results, quickly delivered
+        for (int i = 0; i < 3; i++) {
+            estimator.record(timings(1536, 400, 10));
+        }
+
+        assertNotEquals(FetchProfile.LEAN, FetchProfile.forQuality(estimator.quality()));
+    }
+
+    @Test
+    public void smallResponsesAreIgnored() {
+        BandwidthEstimator estimator = new BandwidthEstimator();
+        for (int i = 0; i < 5; i++) {
+            estimator.record(timings(512, 5000, 5000));
+        }
+
+        assertNull(estimator.quality());
+        assertEquals(FetchProfile.STANDARD, FetchProfile.forQuality(null));
+    }
+
+    private static HttpTransport.Timings timings(long bytes, long firstByteMillis,
+                                                 long transferMillis) {
+        HttpTransport.Timings timings = new HttpTransport.Timings();
+        timings.wireBytes = bytes;
+        timings.firstByteMillis = firstByteMillis;
+        timings.transferMillis = transferMillis;
+        return timings;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.mynews;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Search responses in the Guardian's format, built to any number of results from the
+ * page in guardian-search.json. Each result gets its own URL, as on a real page.
+ */
+final class GuardianPayloads {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SAMPLE_PAGE = "/guardian-search.json";
+
+    // Create a private constructor
+    private GuardianPayloads() {
+    }
+
+    static byte[] searchResponse(int resultCount) throws IOException {
+        JsonObject page = readSamplePage();
+        JsonObject response = page.getAsJsonObject("response");
+        JsonArray samples = response.getAsJsonArray("results");
+
+        JsonParser parser = new JsonParser();
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < resultCount; i++) {
+            // Parsed again for a copy that can be changed without touching the sample
+            JsonObject result = parser.parse(samples.get(i % samples.size()).toString())
+                    .getAsJsonObject();
+            result.addProperty("webUrl", result.get("webUrl").getAsString() + "-" + i);
+            results.add(result);
+        }
+        response.add("results", results);
+        response.addProperty("total", resultCount);
+        response.addProperty("pageSize", resultCount);
+        return page.toString().getBytes(UTF_8);
+    }
+
+    static List<Article> articles(int resultCount) throws IOException {
+        return QueryUtils.extractFromStream(
+                new ByteArrayInputStream(searchResponse(resultCount)), null);
+    }
+
+    private static JsonObject readSamplePage() throws IOException {
+        InputStream stream = GuardianPayloads.class.getResourceAsStream(SAMPLE_PAGE);
+        if (stream == null) {
+            throw new IOException("Missing " + SAMPLE_PAGE);
+        }
+        try {
+            return new JsonParser().parse(new InputStreamReader(stream, UTF_8)).getAsJsonObject();
+        } finally {
+            stream.close();
+        }
+    }
+}
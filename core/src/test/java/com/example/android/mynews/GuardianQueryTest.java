@@ -0,0 +1,73 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds Guardian requests with canonical cache keys and only the fields that are read.
+ */
+public class GuardianQueryTest {
+
+    @Test
+    public void equivalentSearchesShareOneKey() {
+        GuardianQuery typed = new GuardianQuery.Builder()
+                .terms("  Climate   Change ")
+                .pageSize(20)
+                .contributors()
+                .build();
+        GuardianQuery reordered = new GuardianQuery.Builder()
+                .contributors()
+                .pageSize(20)
+                .terms("climate change")
+                .build();
+
+        assertEquals(typed.cacheKey(), reordered.cacheKey());
+        assertEquals(typed.cacheKey(), GuardianQuery.keyFor(typed.toUrl("key")));
+        // However the URL was put together
+        assertEquals(typed.cacheKey(), GuardianQuery.keyFor("http://content.guardianapis.com"
+                + "/search?q=CLIMATE+change&api-key=other&show-tags=contributor"
+                + "&page-size=20&format=json"));
+    }
+
+    @Test
+    public void searchOperatorsKeepTheirCapitals() {
+        String key = new GuardianQuery.Builder().terms("Brexit AND Trade NOT tariffs")
+                .build().cacheKey();
+
+        assertTrue(key, key.contains("q=brexit%20AND%20trade%20NOT%20tariffs"));
+    }
+
+    @Test
+    public void asksOnlyForFieldsTheParserReads() {
+        String url = new GuardianQuery.Builder()
+                .terms("football")
+                .contributors()
+                .thumbnails()
+                .build().toUrl("key");
+
+        assertEquals("http://content.guardianapis.com/search?format=json&q=football"
+                + "&show-fields=thumbnail&show-tags=contributor&api-key=key", url);
+        assertFalse(url.contains("show-references"));
+    }
+
+    @Test
+    public void pageReplacesAnyPageAskedForBefore() {
+        String url = new GuardianQuery.Builder().terms("football").pageSize(20)
+                .build().toUrl("key");
+
+        String second = GuardianQuery.pageUrl(url, 2);
+        assertEquals(url + "&page=2", second);
+        assertEquals(url + "&page=3", GuardianQuery.pageUrl(second, 3));
+        assertEquals("http://content.guardianapis.com/search?format=json&page=2"
+                + "&page-size=20&q=football", GuardianQuery.keyFor(second));
+    }
+
+    @Test
+    public void bodyIsRequestedAtTheArticlePath() {
+        assertEquals("http://content.guardianapis.com/world/2018/jan/01/story"
+                        + "?show-fields=bodyText&api-key=key",
+                GuardianQuery.bodyUrl("https://www.theguardian.com/world/2018/jan/01/story",
+                        "key"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.mynews;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+
+/**
+ * Records live Guardian search responses once, for {@link ReplayHarness} to replay.
+ * <p>
+ * Usage: GuardianRecorder apiKey outputDir name=query:pageSize...
+ * <br>e.g. GuardianRecorder KEY src/test/resources/recordings small=brexit:10 large=football:200
+ */
+public final class GuardianRecorder {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // Create a private constructor
+    private GuardianRecorder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: GuardianRecorder apiKey outputDir name=query:pageSize...");
+            System.exit(1);
+        }
+        String apiKey = args[0];
+        File outputDir = new File(args[1]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create " + outputDir);
+        }
+        for (int i = 2; i < args.length; i++) {
+            String[] nameAndQuery = args[i].split("=", 2);
+            String[] queryAndSize = nameAndQuery[1].split(":", 2);
+            // The same fields the app asks for, so the payloads are the size it sees
+            URL url = new URL(new GuardianQuery.Builder()
+                    .contributors()
+                    .thumbnails()
+                    .pageSize(Integer.parseInt(queryAndSize[1]))
+                    .terms(queryAndSize[0])
+                    .build().toUrl(apiKey));
+            File output = new File(outputDir, nameAndQuery[0] + ".json");
+            record(url, output);
+            System.out.println(output + ": " + output.length() + " bytes");
+        }
+    }
+
+    private static void record(URL url, File output) throws IOException {
+        HttpTransport.Response response = HttpTransport.get(url, null, null);
+        try {
+            if (response.code != 200) {
+                throw new IOException("HTTP " + response.code + " for " + output.getName());
+            }
+            InputStream in = response.body();
+            OutputStream out = new FileOutputStream(output);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            response.close();
+        }
+    }
+}
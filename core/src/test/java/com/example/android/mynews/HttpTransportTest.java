@@ -0,0 +1,189 @@
+package com.example.android.mynews;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives retries, Retry-After handling and the circuit breaker
+ * against a local server that injects faults, and checks that connections are
+ * reused and bodies travel gzipped.
+ */
+public class HttpTransportTest {
+
+    private StubGuardianServer mServer;
+    private URL mUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        // Every server gets its own port, and so its own circuit breaker
+        mServer = new StubGuardianServer();
+        mUrl = new URL(mServer.url("/search?q=test"));
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void requestsShareOneConnectionAndTravelGzipped() throws IOException {
+        byte[] payload = GuardianPayloads.searchResponse(50);
+        mServer.setBody(new String(payload, "UTF-8"));
+        mServer.setGzip(true);
+
+        for (int i = 0; i < 3; i++) {
+            HttpTransport.Response response = HttpTransport.get(mUrl, null, null);
+            assertEquals(200, response.code);
+            long bodyBytes = drain(response.body());
+            response.close();
+
+            assertEquals(payload.length, bodyBytes);
+            // A search page is mostly repeated field names, which gzip shrinks severalfold
+            assertTrue(response.timings.wireBytes + " of " + bodyBytes + " bytes",
+                    response.timings.wireBytes * 3 < bodyBytes);
+        }
+        // Kept alive between requests, so only the first paid for a connect
+        assertEquals(3, mServer.requestCount());
+        assertEquals(1, mServer.connectionCount());
+    }
+
+    @Test
+    public void serverErrorsAreRetried() throws IOException {
+        mServer.enqueue(StubGuardianServer.Fault.status(503));
+        mServer.enqueue(StubGuardianServer.Fault.status(502));
+
+        HttpTransport.Response response = HttpTransport.get(mUrl, null, null);
+        response.close();
+        assertEquals(200, response.code);
+        assertEquals(3, mServer.requestCount());
+    }
+
+    @Test
+    public void droppedConnectionIsRetried() throws IOException {
+        mServer.enqueue(StubGuardianServer.Fault.drop());
+
+        HttpTransport.Response response = HttpTransport.get(mUrl, null, null);
+        response.close();
+        assertEquals(200, response.code);
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws IOException {
+        mServer.enqueue(StubGuardianServer.Fault.status(400));
+
+        HttpTransport.Response response = HttpTransport.get(mUrl, null, null);
+        response.close();
+        assertEquals(400, response.code);
+        assertEquals(1, mServer.requestCount());
+    }
+
+    @Test
+    public void retryAfterIsHonored() throws IOException {
+        mServer.enqueue(StubGuardianServer.Fault.retryAfter(429, "1"));
+
+        long start = System.nanoTime();
+        HttpTransport.Response response = HttpTransport.get(mUrl, null, null);
+        response.close();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(200, response.code);
+        assertEquals(2, mServer.requestCount());
+        assertTrue("waited " + elapsedMillis + "ms", elapsedMillis >= 1000);
+    }
+
+    @Test
+    public void lastResponseIsReturnedOnceAttemptsRunOut() throws IOException {
+        mServer.setStandingFault(StubGuardianServer.Fault.status(500));
+
+        HttpTransport.Response response = HttpTransport.get(mUrl, null, null);
+        response.close();
+        assertEquals(500, response.code);
+        assertEquals(3, mServer.requestCount());
+    }
+
+    @Test
+    public void failingHostIsLeftAloneOnceCircuitOpens() throws IOException {
+        mServer.setStandingFault(StubGuardianServer.Fault.status(500));
+        for (int i = 0; i < 5; i++) {
+            HttpTransport.get(mUrl, null, null).close();
+        }
+        int requests = mServer.requestCount();
+
+        long start = System.nanoTime();
+        try {
+            HttpTransport.get(mUrl, null, null);
+            fail("Expected the circuit to be open");
+        } catch (HttpTransport.CircuitOpenException expected) {
+            // Refused without touching the network
+        }
+        assertEquals(requests, mServer.requestCount());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void refusedBackgroundRequestsLeaveTheHostOpen() throws IOException {
+        // The key is over its limit for a minute
+        mServer.enqueue(StubGuardianServer.Fault.retryAfter(429, "60"));
+
+        HttpTransport.Response response = HttpTransport.get(mUrl, null, null, null, true);
+        response.close();
+        assertEquals(429, response.code);
+        assertEquals(1, mServer.requestCount());
+        try {
+            HttpTransport.get(mUrl, null, null, null, true);
+            fail("Expected background requests to be left off");
+        } catch (HttpTransport.CircuitOpenException expected) {
+            // Waits out the Retry-After
+        }
+
+        // The user's own requests still go through
+        response = HttpTransport.get(mUrl, null, null);
+        response.close();
+        assertEquals(200, response.code);
+    }
+
+    @Test
+    public void cancellingStopsBackoff() throws Exception {
+        mServer.setStandingFault(StubGuardianServer.Fault.retryAfter(503, "5"));
+        final HttpTransport.Cancellable cancellable = new HttpTransport.Cancellable();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cancellable.cancel();
+            }
+        }).start();
+
+        long start = System.nanoTime();
+        try {
+            HttpTransport.get(mUrl, null, null, cancellable);
+            fail("Expected the request to be cancelled");
+        } catch (InterruptedIOException expected) {
+            // Gave up instead of waiting out Retry-After
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, mServer.requestCount());
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            total += count;
+        }
+        return total;
+    }
+}
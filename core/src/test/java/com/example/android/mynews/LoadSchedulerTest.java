@@ -0,0 +1,249 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulates contention between loads the user is waiting on and background loads.
+ */
+public class LoadSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final List<String> mFinished = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void interactiveLoadPreemptsBackgroundLoad() throws Exception {
+        LoadScheduler scheduler = new LoadScheduler(1);
+        final CountDownLatch backgroundStarted = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        LoadScheduler.Task<String> background = scheduler.schedule(
+                LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable) throws Exception {
+                        // The first attempt stands in for a slow read that gets pre-empted
+                        if (attempts.incrementAndGet() == 1) {
+                            backgroundStarted.countDown();
+                            awaitCancel(cancellable);
+                            return null;
+                        }
+                        return finish("background");
+                    }
+                }, null);
+        assertTrue(backgroundStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        LoadScheduler.Task<String> interactive = scheduler.schedule(
+                LoadScheduler.Priority.INTERACTIVE, finishing("interactive"), null);
+
+        assertEquals("interactive", interactive.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("background", background.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("interactive", "background"), mFinished);
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void interactiveLoadDoesNotPreemptWhenAThreadIsFree() throws Exception {
+        LoadScheduler scheduler = new LoadScheduler(2);
+        final CountDownLatch backgroundStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean preempted = new AtomicBoolean();
+
+        LoadScheduler.Task<String> background = scheduler.schedule(
+                LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable) throws Exception {
+                        backgroundStarted.countDown();
+                        release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        preempted.set(cancellable.isCancelled());
+                        return finish("background");
+                    }
+                }, null);
+        assertTrue(backgroundStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        LoadScheduler.Task<String> interactive = scheduler.schedule(
+                LoadScheduler.Priority.INTERACTIVE, finishing("interactive"), null);
+        assertEquals("interactive", interactive.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        release.countDown();
+
+        assertEquals("background", background.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(preempted.get());
+    }
+
+    @Test
+    public void queuedInteractiveLoadsRunBeforeBackgroundLoads() throws Exception {
+        LoadScheduler scheduler = new LoadScheduler(1);
+        final CountDownLatch busyStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // Hold the only thread so everything else queues up behind it
+        LoadScheduler.Task<String> busy = scheduler.schedule(
+                LoadScheduler.Priority.INTERACTIVE,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable) throws Exception {
+                        busyStarted.countDown();
+                        release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        return finish("busy");
+                    }
+                }, null);
+        assertTrue(busyStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        LoadScheduler.Task<String> prefetch = scheduler.schedule(
+                LoadScheduler.Priority.BACKGROUND, finishing("prefetch"), null);
+        LoadScheduler.Task<String> refresh = scheduler.schedule(
+                LoadScheduler.Priority.BACKGROUND, finishing("refresh"), null);
+        LoadScheduler.Task<String> search = scheduler.schedule(
+                LoadScheduler.Priority.INTERACTIVE, finishing("search"), null);
+        release.countDown();
+
+        busy.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        search.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        prefetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        refresh.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("busy", "search", "prefetch", "refresh"), mFinished);
+    }
+
+    @Test
+    public void cancellingLoadCancelsItsRequest() throws Exception {
+        LoadScheduler scheduler = new LoadScheduler(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicReference<HttpTransport.Cancellable> request = new AtomicReference<>();
+        final AtomicBoolean listenerCalled = new AtomicBoolean();
+
+        LoadScheduler.Task<String> task = scheduler.schedule(
+                LoadScheduler.Priority.INTERACTIVE,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable) throws Exception {
+                        request.set(cancellable);
+                        started.countDown();
+                        awaitCancel(cancellable);
+                        stopped.countDown();
+                        return null;
+                    }
+                },
+                new LoadScheduler.OnLoadFinishedListener<String>() {
+                    @Override
+                    public void onLoadFinished(String result) {
+                        listenerCalled.set(true);
+                    }
+                });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertTrue(task.cancel(false));
+        assertTrue(request.get().isCancelled());
+        assertTrue(stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(listenerCalled.get());
+    }
+
+    @Test
+    public void preemptingALoadThatHasJustFinishedDoesNotRunItAgain() throws Exception {
+        LoadScheduler scheduler = new LoadScheduler(1);
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicReference<Thread> worker = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        LoadScheduler.Task<String> task = scheduler.schedule(LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable)
+                            throws InterruptedException {
+                        worker.set(Thread.currentThread());
+                        runs.incrementAndGet();
+                        started.countDown();
+                        release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        return "background";
+                    }
+                }, null);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // Holding the scheduler stops the worker between the job returning and the
+        // task deciding whether to requeue it
+        synchronized (scheduler) {
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (worker.get().getState() != Thread.State.BLOCKED
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertFalse(task.preempt());
+        }
+
+        assertEquals("background", task.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void loadPreemptedAfterShutdownFailsInsteadOfHanging() throws Exception {
+        LoadScheduler scheduler = new LoadScheduler(1);
+        final CountDownLatch backgroundStarted = new CountDownLatch(1);
+        final CountDownLatch shutDown = new CountDownLatch(1);
+
+        LoadScheduler.Task<String> background = scheduler.schedule(
+                LoadScheduler.Priority.BACKGROUND,
+                new LoadScheduler.Job<String>() {
+                    @Override
+                    public String run(HttpTransport.Cancellable cancellable) throws Exception {
+                        backgroundStarted.countDown();
+                        awaitCancel(cancellable);
+                        // Still running when the scheduler is shut down
+                        shutDown.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        return null;
+                    }
+                }, null);
+        assertTrue(backgroundStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        LoadScheduler.Task<String> interactive = scheduler.schedule(
+                LoadScheduler.Priority.INTERACTIVE, finishing("interactive"), null);
+        scheduler.shutdown();
+        shutDown.countDown();
+
+        try {
+            background.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("A pre-empted load cannot run again once the scheduler is shut down");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        // Loads already queued still run
+        assertEquals("interactive", interactive.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private String finish(String name) {
+        mFinished.add(name);
+        return name;
+    }
+
+    private LoadScheduler.Job<String> finishing(final String name) {
+        return new LoadScheduler.Job<String>() {
+            @Override
+            public String run(HttpTransport.Cancellable cancellable) {
+                return finish(name);
+            }
+        };
+    }
+
+    // Stands in for a blocking read that only returns once its socket is closed
+    private static void awaitCancel(HttpTransport.Cancellable cancellable)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!cancellable.isCancelled() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.mynews;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keeps the slowest binds and reports the share of frames dropped while scrolling.
+ */
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.setEnabled(true);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setAllocationSource(null);
+        Metrics.reset();
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void bindKeepsTheSlowestTimesSlowestFirst() {
+        long[] millis = {3, 9, 1, 12, 4, 7, 2, 15};
+        for (long time : millis) {
+            Metrics.BIND.recordMillis(time);
+        }
+
+        String bind = Metrics.BIND.toString();
+        assertTrue(bind, bind.startsWith("bind: n=8 "));
+        assertTrue(bind, bind.endsWith("slowest=15.00,12.00,9.00,7.00,4.00ms"));
+    }
+
+    @Test
+    public void droppedFramesAreAShareOfTheFramesThatWereDue() {
+        // 16.7 ms frames, with one that took long enough to miss a frame
+        for (int i = 0; i < 3; i++) {
+            Metrics.FRAME.recordNanos(16700000);
+        }
+        Metrics.FRAME.recordNanos(33400000);
+        Metrics.DROPPED_FRAMES.add(1);
+
+        assertTrue(Metrics.snapshot().contains("jank: 20.0% of 5 frames dropped"));
+    }
+
+    @Test
+    public void payloadsAreReportedPerQuery() {
+        String key = new GuardianQuery.Builder().terms("football").build().cacheKey();
+        Metrics.recordPayload(key, 4096, 20);
+        Metrics.recordPayload(key, 2048, 10);
+
+        assertTrue(Metrics.snapshot().contains(
+                "payload format=json&q=football: n=2 avg=3.0KB 205B/article"));
+    }
+
+    @Test
+    public void parseAllocationsAreReportedPerArticle() {
+        assertTrue(Metrics.snapshot().contains("parse allocations: not counted"));
+
+        final long[] allocated = {1000};
+        Metrics.setAllocationSource(new Metrics.AllocationSource() {
+            @Override
+            public long threadAllocatedBytes() {
+                return allocated[0];
+            }
+        });
+        long start = Metrics.startAllocations();
+        allocated[0] += 6000;
+        Metrics.ARTICLES_PARSED.add(20);
+        Metrics.PARSE_ALLOCATED_BYTES.addAllocatedSince(start);
+
+        assertTrue(Metrics.snapshot().contains("parse allocations: 300 B/article"));
+    }
+}
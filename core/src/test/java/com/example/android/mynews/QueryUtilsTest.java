@@ -0,0 +1,100 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parses Guardian search responses on the JVM.
+ */
+public class QueryUtilsTest {
+
+    private static final String RESPONSE = "{\"response\":{\"status\":\"ok\",\"total\":2,"
+            + "\"results\":[{"
+            + "\"id\":\"technology/2018/feb/03/first\",\"type\":\"article\","
+            + "\"sectionName\":\"Technology\","
+            + "\"webPublicationDate\":\"2018-02-03T10:15:30Z\","
+            + "\"webTitle\":\"First story\","
+            + "\"webUrl\":\"https://www.theguardian.com/technology/2018/feb/03/first\","
+            + "\"fields\":{\"thumbnail\":\"https://media.guim.co.uk/first.jpg\"},"
+            + "\"tags\":[{\"id\":\"profile/a\",\"webTitle\":\"Alex Writer\"},"
+            + "{\"id\":\"profile/b\",\"webTitle\":\"Bo Reporter\"}],"
+            + "\"isHosted\":false},{"
+            + "\"sectionName\":\"World news\","
+            + "\"webPublicationDate\":\"not a date\","
+            + "\"webTitle\":\"Second story\","
+            + "\"webUrl\":\"https://www.theguardian.com/world/second\","
+            + "\"tags\":[]}]}}";
+
+    @Test
+    public void extractsEveryArticleField() throws IOException {
+        List<Article> articles = QueryUtils.extractFromStream(stream(RESPONSE), null);
+
+        assertEquals(2, articles.size());
+        Article first = articles.get(0);
+        assertEquals("First story", first.getTitle());
+        assertEquals("Technology", first.getSection());
+        assertEquals(ArticleDates.parseIso8601("2018-02-03T10:15:30Z"), first.getTimeInMillis());
+        assertEquals("https://www.theguardian.com/technology/2018/feb/03/first", first.getUrl());
+        assertEquals("https://media.guim.co.uk/first.jpg", first.getThumbnailUrl());
+        assertEquals("Alex Writer | Bo Reporter", first.getAuthorLabel());
+    }
+
+    @Test
+    public void missingFieldsAreLeftEmpty() throws IOException {
+        Article second = QueryUtils.extractFromStream(stream(RESPONSE), null).get(1);
+
+        assertEquals(ArticleDates.NO_TIME, second.getTimeInMillis());
+        assertNull(second.getThumbnailUrl());
+        assertNull(second.getAuthorLabel());
+    }
+
+    @Test
+    public void listenerSeesArticlesInOrder() throws IOException {
+        final List<String> titles = new ArrayList<>();
+        QueryUtils.extractFromStream(stream(RESPONSE), new QueryUtils.OnArticleParsedListener() {
+            @Override
+            public void onArticleParsed(Article article) {
+                titles.add(article.getTitle());
+            }
+        });
+
+        assertEquals(2, titles.size());
+        assertEquals("First story", titles.get(0));
+        assertEquals("Second story", titles.get(1));
+    }
+
+    @Test
+    public void truncatedResponseIsAFailureNotAShortPage() {
+        for (String cut : new String[]{RESPONSE.substring(0, RESPONSE.length() / 2),
+                RESPONSE.replace("\"results\":[{", "\"results\":[[")}) {
+            try {
+                QueryUtils.extractFromStream(stream(cut), null);
+                fail("Expected " + cut + " to fail");
+            } catch (IOException expected) {
+                // Nothing of the page is handed back
+            }
+        }
+    }
+
+    @Test
+    public void extractsTheBodyTextOfAContentResponse() throws IOException {
+        String content = "{\"response\":{\"status\":\"ok\",\"content\":{"
+                + "\"id\":\"world/second\",\"fields\":{\"headline\":\"Second\","
+                + "\"bodyText\":\"The whole story.\"},\"webTitle\":\"Second story\"}}}";
+
+        assertEquals("The whole story.", QueryUtils.extractBodyText(stream(content)));
+        assertNull(QueryUtils.extractBodyText(stream(RESPONSE)));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Holds prefetches to a rate the Guardian's key limits allow.
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void burstPassesThenIsHeldToTheRate() {
+        // Two a second, starting with two to spare
+        RateLimiter limiter = new RateLimiter(2, 1000, 0);
+
+        assertTrue(limiter.tryAcquire(0));
+        assertTrue(limiter.tryAcquire(0));
+        assertFalse(limiter.tryAcquire(0));
+        assertFalse(limiter.tryAcquire(400));
+        assertTrue(limiter.tryAcquire(500));
+        assertFalse(limiter.tryAcquire(500));
+    }
+
+    @Test
+    public void idleTimeDoesNotBankMoreThanTheBurst() {
+        RateLimiter limiter = new RateLimiter(2, 1000, 0);
+        assertTrue(limiter.tryAcquire(0));
+        assertTrue(limiter.tryAcquire(0));
+
+        // An hour idle refills the bucket, but no further
+        long later = 60 * 60 * 1000;
+        assertTrue(limiter.tryAcquire(later));
+        assertTrue(limiter.tryAcquire(later));
+        assertFalse(limiter.tryAcquire(later));
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.android.mynews;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the fetch-and-parse path on recorded traffic. Recorded Guardian responses
+ * are replayed by a {@link ReplayServer} under the given network conditions, while loads
+ * run on a {@link LoadScheduler} at each concurrency level. Every load streams its response
+ * through {@link QueryUtils} into a list, the way ArticleLoader hands batches to the adapter.
+ * Reports throughput of all loads and of those that succeeded, how many failed, and
+ * p50/p99 time to first article and to the complete list of the successful ones.
+ * <p>
+ * Options, all optional: --recordings=dir --concurrency=1,4,16 --loads=100
+ * --latency=millis --bandwidth=bytesPerSecond --errors=rate --drops=rate
+ * <br>Without recordings, pages of 10, 50 and 200 results built from the sample page are used.
+ */
+public final class ReplayHarness {
+
+    private static final String DEFAULT_RECORDINGS = "src/test/resources/recordings";
+    private static final int[] SYNTHETIC_SIZES = {10, 50, 200};
+
+    // Create a private constructor
+    private ReplayHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Map<String, byte[]> recordings = loadRecordings(
+                new File(option(options, "recordings", DEFAULT_RECORDINGS)));
+        int[] concurrencyLevels = parseInts(option(options, "concurrency", "1,4,16"));
+        int loads = Integer.parseInt(option(options, "loads", "100"));
+
+        ReplayServer.Conditions conditions = new ReplayServer.Conditions();
+        conditions.latencyMillis = Long.parseLong(option(options, "latency", "100"));
+        conditions.bytesPerSecond = Long.parseLong(option(options, "bandwidth", "500000"));
+        conditions.errorRate = Double.parseDouble(option(options, "errors", "0.01"));
+        conditions.dropRate = Double.parseDouble(option(options, "drops", "0"));
+
+        ReplayServer server = new ReplayServer(recordings, conditions);
+        try {
+            System.out.println(conditions + ", " + loads + " loads per run");
+            System.out.println(String.format(Locale.US,
+                    "%-16s %9s %5s %9s %9s %9s %9s %9s %9s %7s",
+                    "recording", "bytes", "conc", "loads/s", "ok/s", "ttfa p50", "ttfa p99",
+                    "done p50", "done p99", "failed"));
+            for (Map.Entry<String, byte[]> recording : recordings.entrySet()) {
+                for (int concurrency : concurrencyLevels) {
+                    Run run = run(server.url(recording.getKey()), concurrency, loads);
+                    System.out.println(String.format(Locale.US,
+                            "%-16s %9d %5d %9.1f %9.1f %7dms %7dms %7dms %7dms %7d",
+                            recording.getKey(), recording.getValue().length, concurrency,
+                            run.loadsPerSecond(), run.succeededPerSecond(),
+                            percentile(run.firstArticleMillis, 0.5),
+                            percentile(run.firstArticleMillis, 0.99),
+                            percentile(run.completeMillis, 0.5),
+                            percentile(run.completeMillis, 0.99), run.failed));
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * The timings of one batch of loads at one concurrency level.
+     */
+    private static final class Run {
+        long[] firstArticleMillis;
+        long[] completeMillis;
+        long wallMillis;
+        int failed;
+
+        // Every load that finished, failed or not
+        double loadsPerSecond() {
+            return perSecond(completeMillis.length + failed);
+        }
+
+        double succeededPerSecond() {
+            return perSecond(completeMillis.length);
+        }
+
+        private double perSecond(int count) {
+            return wallMillis == 0 ? 0 : count * 1000.0 / wallMillis;
+        }
+    }
+
+    private static Run run(final String url, int concurrency, int loads)
+            throws InterruptedException, IOException {
+        // Every recording is on the same server, so one run's failures must not leave
+        // the circuit open for the next
+        CircuitBreaker.forAuthority(new URL(url).getAuthority()).reset();
+        LoadScheduler scheduler = new LoadScheduler(concurrency);
+        try {
+            return run(scheduler, url, loads);
+        } finally {
+            // Its threads are not daemons, and would keep the JVM alive
+            scheduler.shutdown();
+        }
+    }
+
+    private static Run run(LoadScheduler scheduler, final String url, int loads)
+            throws InterruptedException {
+        final long[] firstArticle = new long[loads];
+        final long[] complete = new long[loads];
+        List<LoadScheduler.Task<List<Article>>> tasks = new ArrayList<>(loads);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < loads; i++) {
+            final int load = i;
+            tasks.add(scheduler.schedule(LoadScheduler.Priority.INTERACTIVE,
+                    new LoadScheduler.Job<List<Article>>() {
+                        @Override
+                        public List<Article> run(HttpTransport.Cancellable cancellable) {
+                            return load(url, cancellable, load, firstArticle, complete);
+                        }
+                    }, null));
+        }
+
+        Run run = new Run();
+        int succeeded = 0;
+        for (int i = 0; i < loads; i++) {
+            List<Article> articles;
+            try {
+                articles = tasks.get(i).get();
+            } catch (ExecutionException e) {
+                articles = null;
+            }
+            if (articles == null) {
+                run.failed++;
+            } else {
+                firstArticle[succeeded] = firstArticle[i];
+                complete[succeeded] = complete[i];
+                succeeded++;
+            }
+        }
+        run.wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        run.firstArticleMillis = Arrays.copyOf(firstArticle, succeeded);
+        run.completeMillis = Arrays.copyOf(complete, succeeded);
+        return run;
+    }
+
+    // One load as ArticleLoader runs it, minus the cache: fetch, stream-parse and hand over
+    private static List<Article> load(String url, HttpTransport.Cancellable cancellable,
+                                      final int load, final long[] firstArticle,
+                                      long[] complete) {
+        final long start = System.nanoTime();
+        // Stands in for the adapter, which appends each batch as it arrives
+        final List<Article> shown = new ArrayList<>();
+        QueryUtils.Result result = QueryUtils.fetchArticles(url, null, null,
+                new QueryUtils.OnArticleParsedListener() {
+                    @Override
+                    public void onArticleParsed(Article article) {
+                        if (shown.isEmpty()) {
+                            firstArticle[load] =
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        }
+                        shown.add(article);
+                    }
+                }, cancellable);
+        complete[load] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return result == null ? null : shown;
+    }
+
+    private static Map<String, byte[]> loadRecordings(File dir) throws IOException {
+        Map<String, byte[]> recordings = new LinkedHashMap<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.getName().endsWith(".json")) {
+                    String name = file.getName().substring(0, file.getName().length() - 5);
+                    recordings.put(name, readFully(file));
+                }
+            }
+        }
+        if (recordings.isEmpty()) {
+            System.out.println("No recordings in " + dir + ", using synthetic pages");
+            for (int size : SYNTHETIC_SIZES) {
+                recordings.put("synthetic-" + size, GuardianPayloads.searchResponse(size));
+            }
+        }
+        return recordings;
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < bytes.length
+                    && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static long percentile(long[] values, double fraction) {
+        if (values.length == 0) {
+            return 0;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int equals = arg.indexOf('=');
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    private static String option(Map<String, String> options, String name, String fallback) {
+        String value = options.get(name);
+        return value == null ? fallback : value;
+    }
+
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
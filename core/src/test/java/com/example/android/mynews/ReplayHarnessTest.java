@@ -0,0 +1,43 @@
+package com.example.android.mynews;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the replay harness briefly on synthetic pages, so it keeps working between the
+ * times someone runs it for numbers.
+ */
+public class ReplayHarnessTest {
+
+    @Test
+    public void reportsEverySyntheticPageWithoutFailures() throws Exception {
+        File noRecordings = new File(System.getProperty("java.io.tmpdir"), "no-recordings");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        try {
+            ReplayHarness.main(new String[]{"--recordings=" + noRecordings,
+                    "--concurrency=1,2", "--loads=4", "--latency=0", "--bandwidth=10000000",
+                    "--errors=0"});
+        } finally {
+            System.setOut(console);
+        }
+
+        String report = output.toString("UTF-8");
+        int rows = 0;
+        for (String line : report.split("\n")) {
+            if (line.startsWith("synthetic-")) {
+                rows++;
+                // The last column counts failed loads
+                assertTrue(line, line.trim().endsWith(" 0"));
+            }
+        }
+        // Three pages at two concurrency levels
+        assertEquals(report, 6, rows);
+    }
+}
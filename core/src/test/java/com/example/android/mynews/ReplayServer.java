@@ -0,0 +1,171 @@
+package com.example.android.mynews;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Replays recorded Guardian search responses from a local server, shaped like a real
+ * network: a delay before the headers, a bandwidth cap on the body, and a share of
+ * requests that fail with 503 or lose their connection part way through the body.
+ * A request for
+ * /search?q=name is answered with the recording called name.
+ */
+final class ReplayServer {
+
+    // The body is written in slices this big, so the bandwidth cap is smooth
+    private static final int SLICE_BYTES = 1024;
+
+    /**
+     * The network to imitate.
+     */
+    static final class Conditions {
+        long latencyMillis;
+        // 0 for no cap
+        long bytesPerSecond;
+        double errorRate;
+        double dropRate;
+
+        @Override
+        public String toString() {
+            return "latency=" + latencyMillis + "ms bandwidth="
+                    + (bytesPerSecond == 0 ? "unlimited" : bytesPerSecond + "B/s")
+                    + " errors=" + errorRate + " drops=" + dropRate;
+        }
+    }
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final Map<String, byte[]> mPlain = new HashMap<>();
+    private final Map<String, byte[]> mGzipped = new HashMap<>();
+    private final Conditions mConditions;
+    private final Random mRandom = new Random();
+
+    ReplayServer(Map<String, byte[]> recordings, Conditions conditions) throws IOException {
+        mConditions = conditions;
+        for (Map.Entry<String, byte[]> recording : recordings.entrySet()) {
+            mPlain.put(recording.getKey(), recording.getValue());
+            // The Guardian gzips its responses, so the wire size should match
+            mGzipped.put(recording.getKey(), gzip(recording.getValue()));
+        }
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    answer(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        mServer.start();
+    }
+
+    String url(String recording) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/search?q=" + recording;
+    }
+
+    void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        String name = queryParameter(exchange.getRequestURI(), "q");
+        if (!mPlain.containsKey(name)) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        if (!pause(mConditions.latencyMillis)) {
+            return;
+        }
+        double roll;
+        synchronized (mRandom) {
+            roll = mRandom.nextDouble();
+        }
+        // A dropped connection is lost half way through the body, so the client has to
+        // tell a cut-off page from a whole one
+        boolean drop = roll < mConditions.dropRate;
+        if (!drop && roll < mConditions.dropRate + mConditions.errorRate) {
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body;
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = mGzipped.get(name);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        } else {
+            body = mPlain.get(name);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        int length = drop ? body.length / 2 : body.length;
+        for (int offset = 0; offset < length; offset += SLICE_BYTES) {
+            int count = Math.min(SLICE_BYTES, length - offset);
+            out.write(body, offset, count);
+            out.flush();
+            if (mConditions.bytesPerSecond > 0
+                    && !pause(count * 1000L / mConditions.bytesPerSecond)) {
+                return;
+            }
+        }
+        if (drop) {
+            // Left short of its Content-Length; closing the exchange drops the connection
+            return;
+        }
+        out.close();
+    }
+
+    // Returns false if the server is shutting down
+    private static boolean pause(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        String query = uri.getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return pair.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] gzip(byte[] plain) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        out.write(plain);
+        out.close();
+        return compressed.toByteArray();
+    }
+}
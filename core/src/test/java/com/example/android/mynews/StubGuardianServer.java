@@ -0,0 +1,168 @@
+package com.example.android.mynews;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the Guardian API that answers with scripted faults:
+ * error statuses, Retry-After headers, delays and dropped connections.
+ * Once the queued faults are used up it serves the body, or the standing fault if set.
+ * It can gzip the body for clients that ask, and counts the connections it was sent.
+ */
+final class StubGuardianServer {
+
+    static final String EMPTY_RESULTS = "{\"response\":{\"status\":\"ok\",\"results\":[]}}";
+
+    /**
+     * How to answer one request.
+     */
+    static final class Fault {
+        final int status;
+        final String retryAfter;
+        final long delayMillis;
+        final boolean drop;
+
+        private Fault(int status, String retryAfter, long delayMillis, boolean drop) {
+            this.status = status;
+            this.retryAfter = retryAfter;
+            this.delayMillis = delayMillis;
+            this.drop = drop;
+        }
+
+        static Fault status(int status) {
+            return new Fault(status, null, 0, false);
+        }
+
+        static Fault retryAfter(int status, String retryAfter) {
+            return new Fault(status, retryAfter, 0, false);
+        }
+
+        // Answers normally, but only after the given delay
+        static Fault delay(long delayMillis) {
+            return new Fault(200, null, delayMillis, false);
+        }
+
+        // Closes the connection without answering
+        static Fault drop() {
+            return new Fault(0, null, 0, true);
+        }
+    }
+
+    private final HttpServer mServer;
+    private final Queue<Fault> mFaults = new ArrayDeque<>();
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private volatile Fault mStandingFault;
+    private volatile String mBody = EMPTY_RESULTS;
+    private volatile boolean mGzip;
+    // Each connection comes from its own client port
+    private final Set<InetSocketAddress> mClients = new HashSet<>();
+
+    StubGuardianServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                synchronized (mClients) {
+                    mClients.add(exchange.getRemoteAddress());
+                }
+                answer(exchange, nextFault());
+            }
+        });
+        mServer.start();
+    }
+
+    synchronized void enqueue(Fault fault) {
+        mFaults.add(fault);
+    }
+
+    // Answers every request past the queued ones with this fault; null to serve the body
+    void setStandingFault(Fault fault) {
+        mStandingFault = fault;
+    }
+
+    void setBody(String body) {
+        mBody = body;
+    }
+
+    // Gzips the body for requests that accept it
+    void setGzip(boolean gzip) {
+        mGzip = gzip;
+    }
+
+    int requestCount() {
+        return mRequests.get();
+    }
+
+    int connectionCount() {
+        synchronized (mClients) {
+            return mClients.size();
+        }
+    }
+
+    String url(String pathAndQuery) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + pathAndQuery;
+    }
+
+    void stop() {
+        mServer.stop(0);
+    }
+
+    private synchronized Fault nextFault() {
+        Fault fault = mFaults.poll();
+        return fault != null ? fault : mStandingFault;
+    }
+
+    private void answer(HttpExchange exchange, Fault fault) throws IOException {
+        try {
+            if (fault != null && fault.drop) {
+                return;
+            }
+            if (fault != null && fault.delayMillis > 0) {
+                Thread.sleep(fault.delayMillis);
+            }
+            if (fault != null && fault.status != 200) {
+                if (fault.retryAfter != null) {
+                    exchange.getResponseHeaders().set("Retry-After", fault.retryAfter);
+                }
+                exchange.sendResponseHeaders(fault.status, -1);
+                return;
+            }
+            byte[] body = mBody.getBytes(Charset.forName("UTF-8"));
+            String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (mGzip && accepted != null && accepted.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = new GZIPOutputStream(compressed);
+        out.write(body);
+        out.close();
+        return compressed.toByteArray();
+    }
+}